@@ -0,0 +1,29 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Entry point for benchmarks.jar. Accepts the usual JMH command line
+ * but always attaches the GC profiler so allocation rates are reported
+ * with every run.
+ */
+public class BenchmarkRunner {
+	/**
+	 * @param args JMH command line
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder()
+				.parent(cmd)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,102 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.test.quadtree.AnimatedPolyline;
+import watford.test.quadtree.Simulation;
+import watford.test.quadtree.TestConfig;
+import watford.util.quadtree.ISpatialObject;
+import watford.util.quadtree.QuadTree;
+
+/** Level load times: one QuadTree.add per object against the bulk
+ * load constructor. Every invocation gets fresh objects so no parent
+ * links carry over between trees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BulkLoadBenchmark {
+	@Param({"4", "8"})
+	public int splitSize;
+
+	@Param({"65536", "1048576"})
+	public int objectCount;
+
+	@Param({"0.0", "0.01"})
+	public double polylineFraction;
+
+	private Random rng;
+	private int side;
+	private ISpatialObject[] objects;
+
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.rng = new Random(0x5eedL);
+		this.side = Simulation.sideFor(this.objectCount);
+	}
+
+	@Setup(Level.Invocation)
+	public void newObjects( ) {
+		this.objects = new ISpatialObject[this.objectCount];
+		int lineCount = (int)(this.objectCount * this.polylineFraction);
+		for(int ii = 0; ii < this.objectCount; ii++) {
+			if(ii < lineCount)
+				this.objects[ii] = randomPolyline();
+			else
+				this.objects[ii] = new AnimatedPoint(new Point(this.rng.nextInt(this.side), this.rng.nextInt(this.side)));
+		}
+	}
+
+	private AnimatedPolyline randomPolyline( ) {
+		AnimatedPolyline line = new AnimatedPolyline();
+		int x = this.rng.nextInt(this.side);
+		int y = this.rng.nextInt(this.side);
+		line.add(x, y);
+
+		for(int pp = 0; pp < TestConfig.POLYLINE_MAX_SEGMENT_COUNT; pp++) {
+			int step = TestConfig.POLYLINE_MAX_SEGMENT_SIZE;
+			x = Math.max(0, Math.min(this.side - 1, x + this.rng.nextInt(step) - step/2));
+			y = Math.max(0, Math.min(this.side - 1, y + this.rng.nextInt(step) - step/2));
+			line.add(x, y);
+		}
+
+		return line;
+	}
+
+	@Benchmark
+	public QuadTree incremental( ) {
+		QuadTree tree = new QuadTree(new Rectangle(this.side, this.side), this.splitSize);
+		for(int ii = 0; ii < this.objects.length; ii++)
+			tree.add(this.objects[ii]);
+		return tree;
+	}
+
+	@Benchmark
+	public QuadTree bulkLoad( ) {
+		return new QuadTree(new Rectangle(this.side, this.side), this.splitSize, this.objects);
+	}
+}
@@ -0,0 +1,113 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.util.quadtree.ISpatialObject;
+
+/** Category masks on a world mostly made of non-clipping trails. Finds
+ * the solid objects in a region by mask, against fetching everything
+ * and filtering afterwards, and times the default collision test,
+ * which skips subtrees holding trails only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryBenchmark {
+	private static final int QUERIES = 1024;
+
+	@Param({"65536"})
+	public int objectCount;
+
+	@Param({"0.0", "0.9", "0.99"})
+	public double trailFraction;
+
+	@Param({"64", "256"})
+	public int querySize;
+
+	private World world;
+	private Rectangle[] rects;
+	private Point[] probes;
+	private List hits;
+	private int query;
+
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.world = new World(0x5eedL, 8, this.objectCount, 0.0);
+
+		// trails are re-added, an indexed object can't change category
+		int trails = (int)(this.world.points.length * this.trailFraction);
+		for(int pp = 0; pp < trails; pp++) {
+			AnimatedPoint p = this.world.points[pp];
+			this.world.tree.remove(p);
+			p.setCategories(ISpatialObject.CATEGORY_NO_CLIPPING);
+			this.world.tree.add(p);
+		}
+
+		this.rects = new Rectangle[QUERIES];
+		this.probes = new Point[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++) {
+			this.rects[ii] = this.world.randomRect(this.querySize);
+			this.probes[ii] = new Point(this.world.rng.nextInt(this.world.side), this.world.rng.nextInt(this.world.side));
+		}
+		this.hits = new ArrayList();
+	}
+
+	private int next( ) {
+		this.query = (this.query + 1) & (QUERIES - 1);
+		return this.query;
+	}
+
+	@Benchmark
+	public int solidInsideFiltered( ) {
+		this.hits.clear();
+		this.world.tree.objectsInside(this.hits, this.rects[next()]);
+
+		int solid = 0;
+		for(int ii = 0; ii < this.hits.size(); ii++) {
+			if((((ISpatialObject)this.hits.get(ii)).getCategories() & ISpatialObject.CATEGORY_SOLID) != 0)
+				solid++;
+		}
+		return solid;
+	}
+
+	@Benchmark
+	public int solidInside( ) {
+		this.hits.clear();
+		return this.world.tree.objectsInside(this.hits, this.rects[next()], ISpatialObject.CATEGORY_SOLID);
+	}
+
+	@Benchmark
+	public boolean geometryIntersectsRectangle( ) {
+		return this.world.tree.geometryIntersects(this.rects[next()]);
+	}
+
+	@Benchmark
+	public boolean geometryIntersectsPoint( ) {
+		return this.world.tree.geometryIntersects(this.probes[next()]);
+	}
+}
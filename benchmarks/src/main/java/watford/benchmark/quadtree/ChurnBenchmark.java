@@ -0,0 +1,88 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.Simulation;
+import watford.util.quadtree.QuadTree;
+
+/** Structural churn of the swarm workload: one Simulation tick per
+ * call. Reports ticks per second with the splits and merges per second
+ * they caused alongside (divide by the tick rate for churn per tick),
+ * and with -prof gc the allocation per tick. mergeFraction is the merge
+ * size as a fraction of the split size, 1.0 with no collapse delay
+ * being the old collapse-at-once behaviour. nodePooling recycles the
+ * nodes collapses drop for later splits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmark {
+	@Param({"4000", "65536"})
+	public int objectCount;
+	
+	@Param({"8"})
+	public int splitSize;
+	
+	@Param({"1.0", "0.5"})
+	public double mergeFraction;
+	
+	@Param({"0", "8"})
+	public int collapseDelay;
+	
+	@Param({"false", "true"})
+	public boolean nodePooling;
+	
+	private Simulation sim;
+	
+	/**
+	 * Splits and merges, reported by JMH as extra results.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Churn {
+		public long splits;
+		public long merges;
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.sim = new Simulation(0x5eedL, Simulation.SCENARIO_SWARM, this.objectCount, this.splitSize);
+		QuadTree tree = this.sim.getTree();
+		tree.setMergeSize((int)(this.splitSize * this.mergeFraction));
+		tree.setCollapseDelay(this.collapseDelay);
+		tree.setNodePooling(this.nodePooling);
+	}
+	
+	@Benchmark
+	public int tick(Churn churn) {
+		QuadTree tree = this.sim.getTree();
+		long splits = tree.getSplitCount(), merges = tree.getMergeCount();
+		
+		int moved = this.sim.step();
+		
+		churn.splits += tree.getSplitCount() - splits;
+		churn.merges += tree.getMergeCount() - merges;
+		return moved;
+	}
+}
@@ -0,0 +1,135 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.util.quadtree.ICollisionVisitor;
+import watford.util.quadtree.ISpatialObject;
+import watford.util.quadtree.QuadTree;
+
+/** Finding every collision in the world: one geometryIntersects per
+ * object, each from the root, against a single collidingPairs walk.
+ * AnimatedPoints have empty bounds, which geometryIntersects turns
+ * away at the root; with an extent the points are discs that size,
+ * which really are looked up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+	@Param({"4000", "65536"})
+	public int objectCount;
+
+	@Param({"0.0", "0.01"})
+	public double polylineFraction;
+
+	@Param({"1.0", "1.5"})
+	public double looseness;
+
+	@Param({"0", "2"})
+	public int extent;
+
+	private QuadTree tree;
+	private ISpatialObject[] objects;
+	private ICollisionVisitor counter;
+	private int pairs;
+
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		World world = new World(0x5eedL, 8, this.objectCount, this.polylineFraction);
+		this.objects = new ISpatialObject[world.points.length + world.plines.length];
+		System.arraycopy(world.plines, 0, this.objects, 0, world.plines.length);
+		
+		if(this.extent == 0) {
+			this.tree = world.tree;
+			System.arraycopy(world.points, 0, this.objects, world.plines.length, world.points.length);
+		} else {
+			this.tree = new QuadTree(world.tree.getBounds(), 8);
+			for(int ii = 0; ii < world.plines.length; ii++)
+				this.tree.add(world.plines[ii]);
+			for(int ii = 0; ii < world.points.length; ii++) {
+				ISpatialObject disc = new Disc(world.points[ii].getPoint(), this.extent);
+				this.objects[world.plines.length + ii] = disc;
+				this.tree.add(disc);
+			}
+		}
+		this.tree.setLooseness(this.looseness);
+		this.counter = new ICollisionVisitor() {
+			public boolean collided(ISpatialObject a, ISpatialObject b) {
+				CollisionBenchmark.this.pairs++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * A point whose bounds reach extent pixels either way.
+	 */
+	private static final class Disc extends AnimatedPoint {
+		private final int extent;
+
+		Disc(Point loc, int extent) {
+			super(loc);
+			this.extent = extent;
+		}
+
+		public Rectangle getBounds( ) {
+			return new Rectangle(getX() - this.extent, getY() - this.extent, 2 * this.extent, 2 * this.extent);
+		}
+
+		public int getMinX( ) {
+			return getX() - this.extent;
+		}
+
+		public int getMinY( ) {
+			return getY() - this.extent;
+		}
+
+		public int getMaxX( ) {
+			return getX() + this.extent;
+		}
+
+		public int getMaxY( ) {
+			return getY() + this.extent;
+		}
+	}
+
+	@Benchmark
+	public int perObject( ) {
+		int hits = 0;
+		for(int ii = 0; ii < this.objects.length; ii++) {
+			if(this.tree.geometryIntersects(this.objects[ii]))
+				hits++;
+		}
+		return hits;
+	}
+
+	@Benchmark
+	public int collidingPairs( ) {
+		this.pairs = 0;
+		this.tree.collidingPairs(this.counter);
+		return this.pairs;
+	}
+}
@@ -0,0 +1,102 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.util.quadtree.QuadTree;
+
+/** Deferred against immediate kinetic updates: one frame per call, in
+ * which every point takes movesPerCommit random one pixel steps with
+ * translate, and a deferred tree commits once at the end. Reports frames
+ * per second with the leaf migrations per second alongside. A deferred
+ * tree migrates a point at most once per commit, however many cell edges
+ * it crossed on the way; an immediate one follows every crossing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeferredBenchmark {
+	@Param({"4000", "65536"})
+	public int objectCount;
+
+	@Param({"8"})
+	public int splitSize;
+
+	@Param({"1", "4", "16"})
+	public int movesPerCommit;
+
+	@Param({"false", "true"})
+	public boolean deferred;
+
+	private World world;
+	private long seed;
+
+	/**
+	 * Migrations, reported by JMH as an extra result.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Migrations {
+		public long migrations;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.world = new World(0x5eedL, this.splitSize, this.objectCount, 0.0);
+		this.world.tree.setDeferredUpdates(this.deferred);
+		this.seed = 0x5eedL;
+	}
+
+	@Benchmark
+	public int frame(Migrations counts) {
+		QuadTree tree = this.world.tree;
+		AnimatedPoint[] points = this.world.points;
+		int side = this.world.side, moved = 0;
+		long migrations = tree.getMigrationCount();
+
+		for(int mm = 0; mm < this.movesPerCommit; mm++) {
+			for(int pp = 0; pp < points.length; pp++) {
+				// xorshift, cheaper than Random next to a translate
+				this.seed ^= this.seed << 13;
+				this.seed ^= this.seed >>> 7;
+				this.seed ^= this.seed << 17;
+				int step = (int)((this.seed >>> 33) % 9);
+				int dx = step % 3 - 1, dy = step / 3 - 1;
+
+				AnimatedPoint p = points[pp];
+				int x = p.getX() + dx, y = p.getY() + dy;
+				if((dx | dy) == 0 || x < 0 || y < 0 || x >= side || y >= side)
+					continue;
+
+				p.translate(dx, dy);
+				moved++;
+			}
+		}
+		if(this.deferred)
+			tree.commitMoves();
+
+		counts.migrations += tree.getMigrationCount() - migrations;
+		return moved;
+	}
+}
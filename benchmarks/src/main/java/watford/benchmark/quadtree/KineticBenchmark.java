@@ -0,0 +1,129 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.test.quadtree.Simulation;
+import watford.util.quadtree.KineticPoint;
+import watford.util.quadtree.QuadTree;
+
+/** Agents on straight legs, LEG ticks per call. translated moves every
+ * agent each tick as the demo does, notifying the tree whenever its
+ * pixel changes; kinetic gives each agent a velocity once and only
+ * advances the tree's clock, which relocates agents as they cross
+ * cells. Agents stop at the edge of the board either way. speed is in
+ * pixels per tick. Both pay for the migrations; looseness cuts their
+ * number, leaving the per pixel notifications kinetic saves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class KineticBenchmark {
+	private static final int LEG = 256;
+	
+	@Param({"4000", "65536"})
+	public int objectCount;
+	
+	@Param({"0.25", "1.0"})
+	public double speed;
+	
+	@Param({"1.0", "1.5"})
+	public double looseness;
+	
+	private int side;
+	private QuadTree tree;
+	private AnimatedPoint[] points;
+	private double[] xs, ys, vxs, vys;
+	private QuadTree kineticTree;
+	
+	@Setup(Level.Invocation)
+	public void setUp( ) {
+		Random rng = new Random(0x5eedL);
+		this.side = Simulation.sideFor(this.objectCount);
+		Rectangle bounds = new Rectangle(this.side, this.side);
+		this.tree = new QuadTree(bounds, 8);
+		this.kineticTree = new QuadTree(bounds, 8);
+		this.tree.setLooseness(this.looseness);
+		this.kineticTree.setLooseness(this.looseness);
+		
+		this.points = new AnimatedPoint[this.objectCount];
+		this.xs = new double[this.objectCount];
+		this.ys = new double[this.objectCount];
+		this.vxs = new double[this.objectCount];
+		this.vys = new double[this.objectCount];
+		KineticPoint[] agents = new KineticPoint[this.objectCount];
+		
+		for(int pp = 0; pp < this.objectCount; pp++) {
+			int x = rng.nextInt(this.side), y = rng.nextInt(this.side);
+			double heading = rng.nextDouble() * 2 * Math.PI;
+			this.xs[pp] = x;
+			this.ys[pp] = y;
+			this.vxs[pp] = Math.cos(heading) * this.speed;
+			this.vys[pp] = Math.sin(heading) * this.speed;
+			
+			this.points[pp] = new AnimatedPoint(new Point(x, y));
+			this.tree.add(this.points[pp]);
+			
+			agents[pp] = new KineticPoint(x, y);
+			this.kineticTree.add(agents[pp]);
+			this.kineticTree.setVelocity(agents[pp], this.vxs[pp], this.vys[pp]);
+		}
+	}
+	
+	@Benchmark
+	public int translated( ) {
+		int moved = 0;
+		for(int tt = 0; tt < LEG; tt++) {
+			for(int pp = 0; pp < this.points.length; pp++) {
+				double x = this.xs[pp] + this.vxs[pp], y = this.ys[pp] + this.vys[pp];
+				if(x < 0 || y < 0 || x >= this.side || y >= this.side) {
+					this.vxs[pp] = 0;
+					this.vys[pp] = 0;
+					continue;
+				}
+				
+				int dx = (int)Math.floor(x) - (int)Math.floor(this.xs[pp]);
+				int dy = (int)Math.floor(y) - (int)Math.floor(this.ys[pp]);
+				this.xs[pp] = x;
+				this.ys[pp] = y;
+				if(dx != 0 || dy != 0) {
+					this.points[pp].translate(dx, dy);
+					moved++;
+				}
+			}
+		}
+		return moved;
+	}
+	
+	@Benchmark
+	public int kinetic( ) {
+		int failures = 0;
+		double t = this.kineticTree.getTime();
+		for(int tt = 1; tt <= LEG; tt++)
+			failures += this.kineticTree.advanceTo(t + tt);
+		return failures;
+	}
+}
@@ -0,0 +1,81 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.Simulation;
+import watford.util.quadtree.QuadTree;
+
+/** Loose against tight trees: one Simulation tick per call, which moves
+ * every agent and runs its collision queries. Reports ticks per second
+ * with the leaf migrations and splits per second they caused alongside,
+ * so the migrations saved can be weighed against the dearer queries.
+ * looseness 1.0 is the ordinary tight tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LooseBenchmark {
+	@Param({"4000", "65536"})
+	public int objectCount;
+
+	@Param({"8"})
+	public int splitSize;
+
+	@Param({"1.0", "1.5", "2.0"})
+	public double looseness;
+
+	@Param({"uniform", "swarm"})
+	public String scenario;
+
+	private Simulation sim;
+
+	/**
+	 * Migrations and splits, reported by JMH as extra results.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Migrations {
+		public long migrations;
+		public long splits;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		int kind = this.scenario.equals("swarm") ? Simulation.SCENARIO_SWARM : Simulation.SCENARIO_UNIFORM;
+		this.sim = new Simulation(0x5eedL, kind, this.objectCount, this.splitSize);
+		this.sim.getTree().setLooseness(this.looseness);
+	}
+
+	@Benchmark
+	public int tick(Migrations counts) {
+		QuadTree tree = this.sim.getTree();
+		long migrations = tree.getMigrationCount(), splits = tree.getSplitCount();
+
+		int moved = this.sim.step();
+
+		counts.migrations += tree.getMigrationCount() - migrations;
+		counts.splits += tree.getSplitCount() - splits;
+		return moved;
+	}
+}
@@ -0,0 +1,79 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Viewport and minimap sized range queries, serial (parallelThreshold
+ * 0) against fork-join. The 32 pixel queries check small queries keep
+ * their serial latency with parallel queries switched on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelQueryBenchmark {
+	private static final int QUERIES = 64;
+	
+	@Param({"65536", "1048576"})
+	public int objectCount;
+	
+	@Param({"32", "1024", "4096"})
+	public int querySize;
+	
+	@Param({"0", "16384"})
+	public int parallelThreshold;
+	
+	private World world;
+	private Rectangle[] rects;
+	private List hits;
+	private int cursor;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.world = new World(0x5eedL, 8, this.objectCount, 0.01);
+		this.world.tree.setParallelThreshold(this.parallelThreshold);
+		
+		this.rects = new Rectangle[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++)
+			this.rects[ii] = this.world.randomRect(this.querySize);
+		
+		this.hits = new ArrayList();
+		this.cursor = 0;
+	}
+	
+	private int next( ) {
+		return this.cursor = (this.cursor + 1) & (QUERIES - 1);
+	}
+	
+	@Benchmark
+	public int objectsInside( ) {
+		this.hits.clear();
+		return this.world.tree.objectsInside(this.hits, this.rects[next()]);
+	}
+	
+	@Benchmark
+	public int objectsInsideCount( ) {
+		return this.world.tree.objectsInside(null, this.rects[next()]);
+	}
+}
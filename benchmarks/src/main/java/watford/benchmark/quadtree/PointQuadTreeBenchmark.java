@@ -0,0 +1,108 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.Simulation;
+import watford.util.quadtree.IntList;
+import watford.util.quadtree.PointQuadTree;
+
+/** Handle based PointQuadTree counterparts of the QuadTreeBenchmark point
+ * operations, up to 10M points. gc.alloc.rate.norm should read zero for
+ * move and both queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PointQuadTreeBenchmark {
+	private static final int QUERIES = 1024;
+	private static final int QUERY_SIZE = 32;
+	
+	@Param({"4", "8"})
+	public int splitSize;
+	
+	@Param({"4000", "1048576", "10000000"})
+	public int objectCount;
+	
+	private PointQuadTree tree;
+	private int side;
+	private int[] rx, ry;
+	private IntList hits;
+	private int cursor;
+	private int mover;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		Random rng = new Random(0x5eedL);
+		this.side = Simulation.sideFor(this.objectCount);
+		this.tree = new PointQuadTree(new Rectangle(this.side, this.side), this.splitSize, this.objectCount);
+		for(int ii = 0; ii < this.objectCount; ii++)
+			this.tree.add(rng.nextInt(this.side), rng.nextInt(this.side));
+		
+		int edge = Math.min(QUERY_SIZE, this.side);
+		this.rx = new int[QUERIES];
+		this.ry = new int[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++) {
+			this.rx[ii] = rng.nextInt(this.side - edge + 1);
+			this.ry[ii] = rng.nextInt(this.side - edge + 1);
+		}
+		
+		this.hits = new IntList(1024);
+		this.cursor = 0;
+		this.mover = 0;
+	}
+	
+	private int next( ) {
+		return this.cursor = (this.cursor + 1) & (QUERIES - 1);
+	}
+	
+	@Benchmark
+	public int objectsInside( ) {
+		int ii = next();
+		this.hits.clear();
+		return this.tree.objectsInside(this.hits, this.rx[ii], this.ry[ii], QUERY_SIZE, QUERY_SIZE);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsPoint( ) {
+		int ii = next();
+		return this.tree.geometryIntersects(this.rx[ii], this.ry[ii]);
+	}
+	
+	/**
+	 * Same one pixel alternating step as QuadTreeBenchmark.kineticUpdate.
+	 * @return The handle moved
+	 */
+	@Benchmark
+	public int move( ) {
+		int h = this.mover % this.objectCount;
+		int d = ((this.mover / this.objectCount) & 1) == 0 ? 1 : -1;
+		this.mover++;
+		
+		int x = this.tree.getX(h) + d, y = this.tree.getY(h) + d;
+		if(this.tree.geometryContains(x, y))
+			this.tree.move(h, x, y);
+		return h;
+	}
+}
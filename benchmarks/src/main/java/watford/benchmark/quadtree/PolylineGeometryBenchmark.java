@@ -0,0 +1,103 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.GeneralPath;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPolyline;
+
+/** Rectangle and point tests against a single wall, through the wall's
+ * GeneralPath against the int segment tests in PolylineGeometry which
+ * the demo polylines now use. Probes are small boxes and pixels taken
+ * inside the wall's bounds, so none of them are turned away early. The
+ * GeneralPath also tests the shape it fills, so it says yes to probes
+ * the wall only encloses, about a fifth of them here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolylineGeometryBenchmark {
+	private static final int QUERIES = 1024;
+	private static final int SIDE = 4096;
+	
+	@Param({"8", "64", "1024"})
+	public int wallLength;
+	
+	private AnimatedPolyline wall;
+	private GeneralPath path;
+	private Rectangle[] rects;
+	private Point[] probes;
+	private int cursor;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		Random rng = new Random(0x5eedL);
+		this.wall = new AnimatedPolyline();
+		int x = SIDE / 2, y = SIDE / 2;
+		this.wall.add(x, y);
+		for(int ss = 0; ss < this.wallLength; ss++) {
+			x = Math.max(0, Math.min(SIDE - 1, x + rng.nextInt(129) - 64));
+			y = Math.max(0, Math.min(SIDE - 1, y + rng.nextInt(129) - 64));
+			this.wall.add(x, y);
+		}
+		this.path = this.wall.points();
+		
+		this.rects = new Rectangle[QUERIES];
+		this.probes = new Point[QUERIES];
+		Rectangle b = this.wall.getBounds();
+		for(int ii = 0; ii < QUERIES; ii++) {
+			int px = b.x + rng.nextInt(Math.max(b.width, 1));
+			int py = b.y + rng.nextInt(Math.max(b.height, 1));
+			this.rects[ii] = new Rectangle(px - 4, py - 4, 8, 8);
+			this.probes[ii] = new Point(px, py);
+		}
+		this.cursor = 0;
+	}
+	
+	private int next( ) {
+		return this.cursor = (this.cursor + 1) & (QUERIES - 1);
+	}
+	
+	@Benchmark
+	public boolean generalPathRectangle( ) {
+		return this.path.intersects(this.rects[next()]);
+	}
+	
+	@Benchmark
+	public boolean kernelRectangle( ) {
+		return this.wall.intersects(this.rects[next()]);
+	}
+	
+	@Benchmark
+	public boolean generalPathPoint( ) {
+		Point p = this.probes[next()];
+		return this.path.intersects(p.x, p.y, 1, 1);
+	}
+	
+	@Benchmark
+	public boolean kernelPoint( ) {
+		return this.wall.intersects(this.probes[next()]);
+	}
+}
@@ -0,0 +1,114 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.Simulation;
+import watford.util.quadtree.KineticPoint;
+import watford.util.quadtree.QuadTree;
+
+/** "Who will be in this zone within the next window ticks", for agents
+ * moving at 1 pixel per tick. perTick asks the tree once per tick, for
+ * the zone grown by how far an agent can travel by then, and checks
+ * where each agent found will be; predictive is the single
+ * time-parameterised objectsInside.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictiveBenchmark {
+	private static final int QUERIES = 1024;
+	
+	@Param({"4000", "65536"})
+	public int objectCount;
+	
+	@Param({"16", "64"})
+	public int window;
+	
+	@Param({"64"})
+	public int querySize;
+	
+	private QuadTree tree;
+	private Rectangle[] rects;
+	private List hits;
+	private Map seen;
+	private int query;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		Random rng = new Random(0x5eedL);
+		int side = Simulation.sideFor(this.objectCount);
+		this.tree = new QuadTree(new Rectangle(side, side), 8);
+		
+		for(int pp = 0; pp < this.objectCount; pp++) {
+			KineticPoint p = new KineticPoint(rng.nextInt(side), rng.nextInt(side));
+			double heading = rng.nextDouble() * 2 * Math.PI;
+			this.tree.add(p);
+			this.tree.setVelocity(p, Math.cos(heading), Math.sin(heading));
+		}
+		
+		this.rects = new Rectangle[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++) {
+			int edge = Math.min(this.querySize, side);
+			this.rects[ii] = new Rectangle(rng.nextInt(side - edge + 1), rng.nextInt(side - edge + 1), edge, edge);
+		}
+		this.hits = new ArrayList();
+		this.seen = new IdentityHashMap();
+	}
+	
+	private int next( ) {
+		this.query = (this.query + 1) & (QUERIES - 1);
+		return this.query;
+	}
+	
+	@Benchmark
+	public int perTick( ) {
+		Rectangle r = this.rects[next()];
+		double now = this.tree.getTime();
+		this.seen.clear();
+		
+		for(int tt = 0; tt <= this.window; tt++) {
+			Rectangle grown = new Rectangle(r.x - tt, r.y - tt, r.width + 2*tt, r.height + 2*tt);
+			this.hits.clear();
+			this.tree.objectsInside(this.hits, grown);
+			for(int ii = 0; ii < this.hits.size(); ii++) {
+				KineticPoint p = (KineticPoint)this.hits.get(ii);
+				if(r.contains(p.getX(now + tt), p.getY(now + tt)))
+					this.seen.put(p, p);
+			}
+		}
+		return this.seen.size();
+	}
+	
+	@Benchmark
+	public int predictive( ) {
+		double now = this.tree.getTime();
+		this.hits.clear();
+		return this.tree.objectsInside(this.hits, this.rects[next()], now, now + this.window);
+	}
+}
@@ -0,0 +1,226 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.test.quadtree.AnimatedPolyline;
+import watford.util.quadtree.ISpatialObject;
+import watford.util.quadtree.ISpatialVisitor;
+
+/** Core operation benchmarks for the QuadTree.
+ * 
+ * splitSize covers QuadTree.QUADTREE_DEFAULT_SPLIT (4) and
+ * TestConfig.QUADTREE_BUCKET (8). Run with -prof gc (BenchmarkRunner
+ * does this by default) to get allocation rates alongside timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeBenchmark {
+	private static final int QUERIES = 1024;
+	private static final int QUERY_SIZE = 32;
+	
+	@Param({"4", "8"})
+	public int splitSize;
+	
+	@Param({"4000", "65536", "1048576"})
+	public int objectCount;
+	
+	@Param({"0.0", "0.01"})
+	public double polylineFraction;
+	
+	private World world;
+	private Rectangle[] rects;
+	private Point[] probes;
+	private AnimatedPoint[] spares;
+	private AnimatedPolyline spareLine;
+	private int cursor;
+	private int mover;
+	private Point moveTo;
+	private List hits;
+	private int visited;
+	private ISpatialVisitor countAll;
+	private ISpatialVisitor stopAtFirst;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		this.world = new World(0x5eedL, this.splitSize, this.objectCount, this.polylineFraction);
+		
+		this.rects = new Rectangle[QUERIES];
+		this.probes = new Point[QUERIES];
+		this.spares = new AnimatedPoint[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++) {
+			this.rects[ii] = this.world.randomRect(QUERY_SIZE);
+			this.probes[ii] = new Point(this.world.rng.nextInt(this.world.side),
+					this.world.rng.nextInt(this.world.side));
+			this.spares[ii] = new AnimatedPoint(this.world.freePoint());
+		}
+		
+		this.spareLine = this.world.randomPolyline();
+		this.hits = new ArrayList();
+		this.countAll = new ISpatialVisitor() {
+			public boolean visit(ISpatialObject obj) {
+				visited++;
+				return true;
+			}
+		};
+		this.stopAtFirst = new ISpatialVisitor() {
+			public boolean visit(ISpatialObject obj) {
+				visited++;
+				return false;
+			}
+		};
+		this.cursor = 0;
+		this.mover = 0;
+		this.moveTo = new Point();
+	}
+	
+	private int next( ) {
+		return this.cursor = (this.cursor + 1) & (QUERIES - 1);
+	}
+	
+	@Benchmark
+	public boolean addRemovePoint( ) {
+		AnimatedPoint p = this.spares[next()];
+		this.world.tree.add(p);
+		return this.world.tree.remove(p);
+	}
+	
+	@Benchmark
+	public boolean addRemovePolyline( ) {
+		this.world.tree.add(this.spareLine);
+		return this.world.tree.remove(this.spareLine);
+	}
+	
+	@Benchmark
+	public int objectsInside( ) {
+		this.hits.clear();
+		return this.world.tree.objectsInside(this.hits, this.rects[next()]);
+	}
+	
+	@Benchmark
+	public int objectsInsideCount( ) {
+		return this.world.tree.objectsInside(null, this.rects[next()]);
+	}
+	
+	@Benchmark
+	public int size( ) {
+		return this.world.tree.size();
+	}
+	
+	@Benchmark
+	public int objectsInsideLike( ) {
+		this.hits.clear();
+		return this.world.tree.objectsInsideLike(this.hits, this.rects[next()], AnimatedPoint.class);
+	}
+	
+	@Benchmark
+	public int visitInside( ) {
+		this.visited = 0;
+		this.world.tree.visitInside(this.countAll, this.rects[next()]);
+		return this.visited;
+	}
+	
+	@Benchmark
+	public boolean visitInsideAny( ) {
+		return !this.world.tree.visitInsideLike(this.stopAtFirst, this.rects[next()], AnimatedPoint.class);
+	}
+	
+	@Benchmark
+	public int nearest( ) {
+		this.hits.clear();
+		return this.world.tree.nearest(this.hits, this.probes[next()], 8, null);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsPoint( ) {
+		return this.world.tree.geometryIntersects(this.probes[next()]);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsRectangle( ) {
+		return this.world.tree.geometryIntersects(this.rects[next()]);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsObject( ) {
+		int ii = next() % this.world.points.length;
+		return this.world.tree.geometryIntersects(this.world.points[ii]);
+	}
+	
+	/**
+	 * Kinetic update path: steps one point per call, a pixel in alternating
+	 * directions so the world stays put, which drives
+	 * QuadTreeNode.objectMoved through the same call chain the demo uses.
+	 * @return The point moved
+	 */
+	@Benchmark
+	public AnimatedPoint kineticUpdate( ) {
+		AnimatedPoint p = this.world.points[this.mover % this.world.points.length];
+		int d = ((this.mover / this.world.points.length) & 1) == 0 ? 1 : -1;
+		this.mover++;
+		
+		this.moveTo.setLocation(p.getX() + d, p.getY() + d);
+		if(this.world.tree.geometryContains(this.moveTo))
+			p.translate(d, d);
+		return p;
+	}
+	
+	/**
+	 * The demo's collision checked move, stepping points as kineticUpdate
+	 * does: geometryContains and geometryIntersects from the root for
+	 * the spot, then translate.
+	 * @return Did the point move?
+	 */
+	@Benchmark
+	public boolean checkedMove( ) {
+		AnimatedPoint p = this.world.points[this.mover % this.world.points.length];
+		int d = ((this.mover / this.world.points.length) & 1) == 0 ? 1 : -1;
+		this.mover++;
+		
+		this.moveTo.setLocation(p.getX() + d, p.getY() + d);
+		if(this.world.tree.geometryContains(this.moveTo) &&
+				!this.world.tree.geometryIntersects(this.moveTo)) {
+			p.translate(d, d);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * checkedMove as the one call, see QuadTree.tryTranslate.
+	 * @return Did the point move?
+	 */
+	@Benchmark
+	public boolean tryTranslate( ) {
+		AnimatedPoint p = this.world.points[this.mover % this.world.points.length];
+		int d = ((this.mover / this.world.points.length) & 1) == 0 ? 1 : -1;
+		this.mover++;
+		
+		return this.world.tree.tryTranslate(p, d, d) == null;
+	}
+}
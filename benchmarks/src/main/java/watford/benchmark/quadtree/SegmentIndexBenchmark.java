@@ -0,0 +1,137 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.test.quadtree.AnimatedPolyline;
+import watford.util.quadtree.QuadTree;
+
+/** Collision tests against long, self crossing walls, with polylines
+ * stored whole in every leaf against segment indexing. Probes are taken
+ * near wall vertices so most of them land in leaves holding a wall.
+ * geometryIntersectsWall tests the walls themselves.
+ * moveWall measures the kinetic update of a moving wall, which only
+ * touches the leaves it enters or leaves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentIndexBenchmark {
+	private static final int QUERIES = 1024;
+	private static final int SIDE = 4096;
+	private static final int WALLS = 16;
+	private static final int POINTS = 16384;
+	
+	@Param({"64", "1024"})
+	public int wallLength;
+	
+	@Param({"false", "true"})
+	public boolean segmentIndexing;
+	
+	private QuadTree tree;
+	private AnimatedPolyline[] walls;
+	private int mover;
+	private Point[] probes;
+	private Rectangle[] rects;
+	private int cursor;
+	
+	@Setup(Level.Trial)
+	public void setUp( ) {
+		Random rng = new Random(0x5eedL);
+		this.tree = new QuadTree(new Rectangle(SIDE, SIDE), 8);
+		this.tree.setSegmentIndexing(this.segmentIndexing);
+		
+		AnimatedPolyline[] walls = this.walls = new AnimatedPolyline[WALLS];
+		for(int ww = 0; ww < WALLS; ww++) {
+			walls[ww] = new AnimatedPolyline();
+			int x = rng.nextInt(SIDE), y = rng.nextInt(SIDE);
+			walls[ww].add(x, y);
+			for(int ss = 0; ss < this.wallLength; ss++) {
+				x = Math.max(0, Math.min(SIDE - 1, x + rng.nextInt(129) - 64));
+				y = Math.max(0, Math.min(SIDE - 1, y + rng.nextInt(129) - 64));
+				walls[ww].add(x, y);
+			}
+			this.tree.add(walls[ww]);
+		}
+		
+		for(int pp = 0; pp < POINTS; pp++)
+			this.tree.add(new AnimatedPoint(new Point(rng.nextInt(SIDE), rng.nextInt(SIDE))));
+		
+		this.probes = new Point[QUERIES];
+		this.rects = new Rectangle[QUERIES];
+		for(int ii = 0; ii < QUERIES; ii++) {
+			Point v = walls[ii % WALLS].centroid();
+			Rectangle b = walls[ii % WALLS].getBounds();
+			int x = b.x + rng.nextInt(Math.max(b.width, 1));
+			int y = b.y + rng.nextInt(Math.max(b.height, 1));
+			this.probes[ii] = (ii & 1) == 0 ? new Point(x, y) : v;
+			this.rects[ii] = new Rectangle(x, y, 8, 8);
+		}
+		this.cursor = 0;
+		this.mover = 0;
+	}
+	
+	private int next( ) {
+		return this.cursor = (this.cursor + 1) & (QUERIES - 1);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsPoint( ) {
+		return this.tree.geometryIntersects(this.probes[next()]);
+	}
+	
+	@Benchmark
+	public boolean geometryIntersectsRectangle( ) {
+		return this.tree.geometryIntersects(this.rects[next()]);
+	}
+	
+	/**
+	 * Collision test of a whole wall against the tree, which starts
+	 * from the wall's bounds.
+	 * @return Did the wall hit anything?
+	 */
+	@Benchmark
+	public boolean geometryIntersectsWall( ) {
+		return this.tree.geometryIntersects(this.walls[next() % WALLS]);
+	}
+	
+	/**
+	 * Steps one wall per call, a pixel in alternating directions so the
+	 * walls stay put, through the same notify chain the demo uses.
+	 * @return The wall moved
+	 */
+	@Benchmark
+	public AnimatedPolyline moveWall( ) {
+		AnimatedPolyline wall = this.walls[this.mover % WALLS];
+		int d = ((this.mover / WALLS) & 1) == 0 ? 1 : -1;
+		this.mover++;
+		
+		Rectangle b = wall.getBounds();
+		if(b.x + d >= 0 && b.y + d >= 0 && b.x + b.width + d < SIDE && b.y + b.height + d < SIDE)
+			wall.translate(d, d);
+		return wall;
+	}
+}
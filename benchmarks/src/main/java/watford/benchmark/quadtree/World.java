@@ -0,0 +1,99 @@
+/** Quad Tree Benchmark Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.benchmark.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Random;
+
+import watford.test.quadtree.AnimatedPoint;
+import watford.test.quadtree.AnimatedPolyline;
+import watford.test.quadtree.Simulation;
+import watford.test.quadtree.TestConfig;
+import watford.util.quadtree.QuadTree;
+
+/** Seeded world generator shared by the benchmarks. Lays out polylines
+ * and points the same way QuadTreeTest.newMap does, but deterministically
+ * and with the board scaled by Simulation.sideFor so large object counts
+ * keep the density of the 4000 point demo.
+ */
+final class World {
+	final Random rng;
+	final int side;
+	final QuadTree tree;
+	final AnimatedPoint[] points;
+	final AnimatedPolyline[] plines;
+	
+	World(long seed, int splitSize, int objectCount, double polylineFraction) {
+		this.rng = new Random(seed);
+		this.side = Simulation.sideFor(objectCount);
+		this.tree = new QuadTree(new Rectangle(this.side, this.side), splitSize);
+		
+		int lineCount = (int)(objectCount * polylineFraction);
+		this.plines = new AnimatedPolyline[lineCount];
+		for(int ll = 0; ll < lineCount; ll++) {
+			this.plines[ll] = randomPolyline();
+			this.tree.add(this.plines[ll]);
+		}
+		
+		this.points = new AnimatedPoint[objectCount - lineCount];
+		for(int pp = 0; pp < this.points.length; pp++) {
+			this.points[pp] = new AnimatedPoint(freePoint());
+			this.tree.add(this.points[pp]);
+		}
+	}
+	
+	/**
+	 * Random point on the board which does not collide with anything.
+	 * @return Free point
+	 */
+	Point freePoint( ) {
+		Point p = new Point(this.rng.nextInt(this.side), this.rng.nextInt(this.side));
+		while(this.tree.geometryIntersects(p)) {
+			p.x = this.rng.nextInt(this.side);
+			p.y = this.rng.nextInt(this.side);
+		}
+		return p;
+	}
+	
+	/**
+	 * Random walk polyline which stays on the board, built like
+	 * QuadTreeTest.newMap builds its walls.
+	 * @return New polyline, not yet added to the tree
+	 */
+	AnimatedPolyline randomPolyline( ) {
+		AnimatedPolyline line = new AnimatedPolyline();
+		int x = this.rng.nextInt(this.side);
+		int y = this.rng.nextInt(this.side);
+		line.add(x, y);
+		
+		for(int pp = 0; pp < TestConfig.POLYLINE_MAX_SEGMENT_COUNT; pp++) {
+			int tx, ty;
+			do {
+				int dx = this.rng.nextInt(TestConfig.POLYLINE_MAX_SEGMENT_SIZE);
+				int dy = this.rng.nextInt(TestConfig.POLYLINE_MAX_SEGMENT_SIZE);
+				tx = x + (int)(dx * (this.rng.nextDouble() - this.rng.nextDouble()));
+				ty = y + (int)(dy * (this.rng.nextDouble() - this.rng.nextDouble()));
+			} while(!this.tree.geometryContains(new Point(tx, ty)));
+			
+			line.add(tx, ty);
+			x = tx;
+			y = ty;
+		}
+		
+		return line;
+	}
+	
+	/**
+	 * Random query rectangle fully on the board.
+	 * @param size Edge length of the query
+	 * @return Query rectangle
+	 */
+	Rectangle randomRect(int size) {
+		int edge = Math.min(size, this.side);
+		return new Rectangle(this.rng.nextInt(this.side - edge + 1),
+				this.rng.nextInt(this.side - edge + 1), edge, edge);
+	}
+}
@@ -47,19 +47,15 @@ public class AnimatedPoint extends AbstractKineticObject implements IPaintable {
 	}
 	public void translate(Point p) {
 		this.loc = p;
-		this.setChanged();
-		this.notifyObservers();
-		this.clearChanged();
+		this.notifyMoved();
 	}
 	public void translate(int dx, int dy) {
 		this.loc.translate(dx,dy);
-		this.setChanged();
-		this.notifyObservers();
-		this.clearChanged();
+		this.notifyMoved();
 	}
 
 	public boolean intersects(GeneralPath path) {
-		return path.intersects(new Rectangle(this.loc.x,this.loc.y,1,1));
+		return path.intersects(this.loc.x, this.loc.y, 1, 1);
 	}
 	
 	public boolean intersects(Rectangle rect) {
@@ -67,7 +63,7 @@ public class AnimatedPoint extends AbstractKineticObject implements IPaintable {
 	}
 	
 	public boolean intersects(Point pnt) {
-		return (this.loc.distance(pnt) == 0.0);
+		return this.loc.x == pnt.x && this.loc.y == pnt.y;
 	}
 	
 	public boolean containedFullyBy(Rectangle rect) {
@@ -94,6 +90,30 @@ public class AnimatedPoint extends AbstractKineticObject implements IPaintable {
 		return new Rectangle(this.loc.x, this.loc.y, 0, 0);
 	}
 
+	public int getMinX( ) {
+		return this.loc.x;
+	}
+	
+	public int getMinY( ) {
+		return this.loc.y;
+	}
+	
+	public int getMaxX( ) {
+		return this.loc.x;
+	}
+	
+	public int getMaxY( ) {
+		return this.loc.y;
+	}
+	
+	public int getCentroidX( ) {
+		return this.loc.x;
+	}
+	
+	public int getCentroidY( ) {
+		return this.loc.y;
+	}
+
 	public int pointCount() {
 		return 1;
 	}
@@ -109,8 +129,6 @@ public class AnimatedPoint extends AbstractKineticObject implements IPaintable {
 	public void warpTo(int x, int y) {
 		this.loc.x = x;
 		this.loc.y = y;
-		this.setChanged();
-		this.notifyObservers();
-		this.clearChanged();
+		this.notifyMoved();
 	}
 }
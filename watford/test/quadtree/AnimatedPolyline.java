@@ -86,23 +86,19 @@ public class AnimatedPolyline extends AbstractPolyline implements IPaintable {
 	}
 	
 	public boolean intersects(GeneralPath path) {
-		return this.line.intersects(path.getBounds());
+		return segmentsIntersect(path.getBounds());
 	}
 
 	public boolean intersects(Rectangle rect) {
-		return this.line.intersects(rect);
+		return segmentsIntersect(rect);
 	}
 
 	public boolean intersects(Point pnt) {
-		return this.line.intersects((double)pnt.x, (double)pnt.y, 1, 1);
+		return segmentsTouch(pnt);
 	}
 	
 	public boolean containedPartiallyBy(Rectangle rect) {
-		return this.line.intersects(rect);
-	}
-	
-	public boolean containedFullyBy(Rectangle rect) {
-		return rect.contains(this.line.getBounds());
+		return segmentsIntersect(rect);
 	}
 	
 	public Color getColor() {
@@ -130,10 +126,6 @@ public class AnimatedPolyline extends AbstractPolyline implements IPaintable {
 			g.setClip(null);
 	}
 
-	public Rectangle getBounds() {
-		return this.line.getBounds();
-	}
-	
 	public GeneralPath points() {
 		return this.line;
 	}
@@ -144,14 +136,11 @@ public class AnimatedPolyline extends AbstractPolyline implements IPaintable {
 	}
 
 	public void translate(int dx, int dy) {
-		/*for(int ii = 0; ii < this.count; ii++) {
-			this.x[ii] += dx;
-			this.y[ii] += dy;
-		}*/
+		translatePoints(dx, dy);
+		this.lastX += dx;
+		this.lastY += dy;
 		this.line.transform(AffineTransform.getTranslateInstance(dx,dy));
-		this.setChanged();
-		this.notifyObservers();
-		this.clearChanged();
+		this.notifyMoved();
 		//this
 	}
 
@@ -0,0 +1,55 @@
+/** Quad Tree Test Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.test.quadtree;
+
+/** Command line driver for Simulation, no display required.
+ * 
+ * Usage: HeadlessSimulation [scenario] [points] [ticks] [seed] [bucket] [deferred]
+ * where scenario is one of uniform, swarm or corridor, and deferred
+ * batches each tick's moves into one QuadTree.commitMoves. Defaults match
+ * the Swing demo: uniform, TestConfig.POINT_COUNT points, 1000 ticks,
+ * TestConfig.QUADTREE_BUCKET.
+ */
+public class HeadlessSimulation {
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int scenario = Simulation.SCENARIO_UNIFORM;
+		if(args.length > 0) {
+			scenario = -1;
+			for(int ii = 0; ii < Simulation.SCENARIO_NAMES.length; ii++) {
+				if(Simulation.SCENARIO_NAMES[ii].equalsIgnoreCase(args[0]))
+					scenario = ii;
+			}
+			if(scenario < 0) {
+				System.err.println("Unknown scenario '" + args[0] + "', expected uniform, swarm or corridor");
+				System.exit(1);
+			}
+		}
+		
+		int pointCount = args.length > 1 ? Integer.parseInt(args[1]) : TestConfig.POINT_COUNT;
+		int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 2005L;
+		int bucket = args.length > 4 ? Integer.parseInt(args[4]) : TestConfig.QUADTREE_BUCKET;
+		boolean deferred = args.length > 5 && args[5].equalsIgnoreCase("deferred");
+		
+		long start = System.nanoTime();
+		Simulation sim = new Simulation(seed, scenario, pointCount, bucket);
+		sim.getTree().setDeferredUpdates(deferred);
+		long built = System.nanoTime();
+		
+		System.out.println("scenario=" + Simulation.SCENARIO_NAMES[scenario]
+				+ " points=" + pointCount
+				+ " board=" + sim.getSide() + "x" + sim.getSide()
+				+ " bucket=" + bucket
+				+ " seed=" + seed
+				+ (deferred ? " deferred" : "")
+				+ " build=" + String.format("%.1fms", (built - start) / 1e6));
+		
+		SimulationStats stats = sim.run(ticks, TestConfig.TIME_SLICE);
+		System.out.println(stats);
+	}
+}
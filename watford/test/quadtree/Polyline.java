@@ -88,23 +88,19 @@ public class Polyline extends AbstractPolyline implements IPaintable {
 	}
 	
 	public boolean intersects(GeneralPath path) {
-		return this.line.intersects(path.getBounds());
+		return segmentsIntersect(path.getBounds());
 	}
 
 	public boolean intersects(Rectangle rect) {
-		return this.line.intersects(rect);
+		return segmentsIntersect(rect);
 	}
 
 	public boolean intersects(Point pnt) {
-		return this.line.intersects((double)pnt.x, (double)pnt.y, 1, 1);
-	}
-	
-	public boolean containedFullyBy(Rectangle rect) {
-		return rect.contains(this.line.getBounds());
+		return segmentsTouch(pnt);
 	}
 	
 	public boolean containedPartiallyBy(Rectangle rect) {
-		return this.line.intersects(rect);
+		return segmentsIntersect(rect);
 	}
 	
 	public Color getColor() {
@@ -127,10 +123,6 @@ public class Polyline extends AbstractPolyline implements IPaintable {
 			g.setClip(null);
 	}
 
-	public Rectangle getBounds() {
-		return this.line.getBounds();
-	}
-
 	public void translate(Point p) {
 		// noop on the polyline, its not a kinetic object
 	}
@@ -0,0 +1,567 @@
+/** Quad Tree Test Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.test.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import watford.util.quadtree.AbstractPolyline;
+import watford.util.quadtree.ICollisionVisitor;
+import watford.util.quadtree.ISpatialObject;
+import watford.util.quadtree.KineticPoint;
+import watford.util.quadtree.QuadTree;
+
+/** Randomised check of QuadTree against brute force, no display required.
+ *
+ * Each round builds a small world of points and polylines under one
+ * combination of the tree's switches: looseness, segment indexing,
+ * deferred updates, node pooling, merge size, collapse delay and maximum
+ * depth, added one at a time or bulk loaded. It then moves, warps,
+ * removes and re-adds objects for a number of steps. After every step
+ * size, toList, objectsInside, geometryIntersects, nearest and
+ * collidingPairs are compared with what a scan of every object gives.
+ * Each round ends by checking predictive objectsInside against where
+ * KineticPoints end up, many of them stopped at the edge of the tree.
+ *
+ * Every world also holds more points stacked on one spot than a leaf
+ * holds before it splits, and straight lines which keep landing on the
+ * edges between cells, as both used to break the tree.
+ *
+ * Usage: QuadTreeCheck [rounds] [seed] [steps]
+ * Rounds cycle through every combination of the switches, 256 covers each
+ * once. Prints the first few mismatches and exits with status 1 if there
+ * were any.
+ */
+public class QuadTreeCheck {
+	private static final int SIDE = 256;
+	private static final int SPLIT = 4;
+	private static final int POINTS = 120;
+	private static final int STACKED = 3 * SPLIT;
+	private static final int LINES = 10;
+	private static final int EDGE_LINES = 6;
+	private static final int KINETIC = 40;
+	private static final int EDGE_STRIP = 4;
+	private static final int SWITCHES = 8;
+	private static final int MAX_REPORTS = 20;
+
+	private final Random rng;
+	private final int config;
+	private final QuadTree tree;
+	private final List objects;
+	private final List removed;
+	private final Map ids;
+	private int step;
+
+	private static int checks;
+	private static int failures;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1 << SWITCHES;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 2005L;
+		int steps = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+		long start = System.nanoTime();
+		for(int rr = 0; rr < rounds; rr++) {
+			QuadTreeCheck round = new QuadTreeCheck(seed + rr, rr % (1 << SWITCHES));
+			round.run(steps);
+		}
+
+		System.out.println("rounds=" + rounds + " steps=" + steps + " seed=" + seed
+				+ " checks=" + checks + " failures=" + failures
+				+ " time=" + String.format("%.1fs", (System.nanoTime() - start) / 1e9));
+		if(failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * @param seed Random seed, fixes the world and all moves
+	 * @param config Switches to set, one bit each, see describe
+	 */
+	public QuadTreeCheck(long seed, int config) {
+		this.rng = new Random(seed);
+		this.config = config;
+		this.objects = new ArrayList();
+		this.removed = new ArrayList();
+		this.ids = new IdentityHashMap();
+		this.step = -1;
+
+		for(int pp = 0; pp < POINTS; pp++) {
+			AnimatedPoint p = new AnimatedPoint(new Point(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE)));
+			if(pp % 9 == 0)
+				p.setCategories(ISpatialObject.CATEGORY_NO_CLIPPING);
+			this.objects.add(p);
+		}
+
+		// more than a leaf holds, all on one spot
+		int sx = this.rng.nextInt(SIDE), sy = this.rng.nextInt(SIDE);
+		for(int pp = 0; pp < STACKED; pp++)
+			this.objects.add(new AnimatedPoint(new Point(sx, sy)));
+
+		for(int ll = 0; ll < LINES; ll++) {
+			AnimatedPolyline line = randomPolyline();
+			if(ll == 0)
+				line.setCategories(ISpatialObject.CATEGORY_NO_CLIPPING);
+			this.objects.add(line);
+		}
+
+		// walls on the edges between cells, moved across them later
+		for(int ll = 0; ll < EDGE_LINES; ll++)
+			this.objects.add(edgePolyline(ll));
+
+		for(int ii = 0; ii < this.objects.size(); ii++)
+			this.ids.put(this.objects.get(ii), Integer.valueOf(ii));
+
+		Rectangle bounds = new Rectangle(SIDE, SIDE);
+		if(isSet(7)) {
+			this.tree = new QuadTree(bounds, SPLIT, this.objects);
+			configure(this.tree);
+		} else {
+			this.tree = new QuadTree(bounds, SPLIT);
+			configure(this.tree);
+			for(int ii = 0; ii < this.objects.size(); ii++) {
+				if(!this.tree.add((ISpatialObject)this.objects.get(ii)))
+					fail("add refused " + describe(this.objects.get(ii)));
+			}
+		}
+	}
+
+	private void configure(QuadTree tree) {
+		if(isSet(0))
+			tree.setLooseness(1.5);
+		if(isSet(1))
+			tree.setSegmentIndexing(true);
+		if(isSet(2))
+			tree.setDeferredUpdates(true);
+		if(isSet(3))
+			tree.setNodePooling(true);
+		if(isSet(4))
+			tree.setMergeSize(SPLIT / 2);
+		if(isSet(5))
+			tree.setCollapseDelay(3);
+		if(isSet(6))
+			tree.setMaxDepth(4);
+	}
+
+	private boolean isSet(int bit) {
+		return (this.config & (1 << bit)) != 0;
+	}
+
+	private String describe( ) {
+		return "config=" + this.config
+			+ (isSet(0) ? " loose" : "")
+			+ (isSet(1) ? " segments" : "")
+			+ (isSet(2) ? " deferred" : "")
+			+ (isSet(3) ? " pooling" : "")
+			+ (isSet(4) ? " merge=" + (SPLIT / 2) : "")
+			+ (isSet(5) ? " delay=3" : "")
+			+ (isSet(6) ? " depth=4" : "")
+			+ (isSet(7) ? " bulk" : "")
+			+ " step=" + this.step;
+	}
+
+	private String describe(Object o) {
+		ISpatialObject obj = (ISpatialObject)o;
+		return "#" + this.ids.get(o) + " " + (obj.pointCount() == 1 ? "point" : "line")
+			+ " [" + obj.getMinX() + "," + obj.getMinY() + " - " + obj.getMaxX() + "," + obj.getMaxY() + "]";
+	}
+
+	private void fail(String what) {
+		failures++;
+		if(failures <= MAX_REPORTS)
+			System.out.println(describe() + ": " + what);
+	}
+
+	private void expect(boolean ok, String what) {
+		checks++;
+		if(!ok)
+			fail(what);
+	}
+
+	/**
+	 * Check the freshly built tree, then move things about and check
+	 * again after every step.
+	 * @param steps Number of steps to run
+	 */
+	public void run(int steps) {
+		verify();
+		for(this.step = 0; this.step < steps; this.step++) {
+			move();
+			churn();
+			if(this.tree.isDeferredUpdates())
+				this.tree.commitMoves();
+			verify();
+		}
+		checkKineticEdge();
+	}
+
+	private void move( ) {
+		for(int ii = 0; ii < this.objects.size(); ii++) {
+			ISpatialObject obj = (ISpatialObject)this.objects.get(ii);
+
+			// the stack stays put
+			if(isStacked(obj) || this.rng.nextInt(2) == 0)
+				continue;
+
+			if(obj.pointCount() == 1) {
+				if(this.rng.nextInt(20) == 0) {
+					obj.warpTo(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE));
+				} else {
+					int x = clamp(obj.getCentroidX() + this.rng.nextInt(7) - 3);
+					int y = clamp(obj.getCentroidY() + this.rng.nextInt(7) - 3);
+					obj.translate(x - obj.getCentroidX(), y - obj.getCentroidY());
+				}
+			} else {
+				int dx = this.rng.nextInt(5) - 2, dy = this.rng.nextInt(5) - 2;
+				if(obj.getMinX() + dx >= 0 && obj.getMaxX() + dx < SIDE
+						&& obj.getMinY() + dy >= 0 && obj.getMaxY() + dy < SIDE)
+					obj.translate(dx, dy);
+			}
+		}
+	}
+
+	/**
+	 * Take the odd object out of the tree and put some back, moved
+	 * while they were out.
+	 */
+	private void churn( ) {
+		for(int nn = this.rng.nextInt(3); nn > 0 && !this.objects.isEmpty(); nn--) {
+			ISpatialObject obj = (ISpatialObject)this.objects.remove(this.rng.nextInt(this.objects.size()));
+			expect(this.tree.remove(obj), "remove refused " + describe(obj));
+			this.removed.add(obj);
+		}
+
+		for(int nn = this.rng.nextInt(3); nn > 0 && !this.removed.isEmpty(); nn--) {
+			ISpatialObject obj = (ISpatialObject)this.removed.remove(this.rng.nextInt(this.removed.size()));
+			if(obj.pointCount() == 1 && !isStacked(obj))
+				obj.warpTo(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE));
+			expect(this.tree.add(obj), "add refused " + describe(obj));
+			this.objects.add(obj);
+		}
+	}
+
+	private boolean isStacked(ISpatialObject obj) {
+		int id = ((Integer)this.ids.get(obj)).intValue();
+		return id >= POINTS && id < POINTS + STACKED;
+	}
+
+	private void verify( ) {
+		checkMembers();
+		for(int qq = 0; qq < 12; qq++)
+			checkInside(randomRect());
+		for(int qq = 0; qq < 12; qq++)
+			checkIntersects(randomRect());
+		for(int qq = 0; qq < 12; qq++)
+			checkIntersects(new Point(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE)));
+		for(int qq = 0; qq < 12 && !this.objects.isEmpty(); qq++)
+			checkIntersects((ISpatialObject)this.objects.get(this.rng.nextInt(this.objects.size())));
+		for(int qq = 0; qq < 6; qq++)
+			checkNearest(new Point(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE)));
+		// every fifth step, starting with the fresh tree
+		if((this.step + 1) % 5 == 0)
+			checkPairs();
+	}
+
+	/**
+	 * size counts a polyline once for every leaf holding it, as toList
+	 * lists it; every object must be listed and nothing else.
+	 */
+	private void checkMembers( ) {
+		List listed = new ArrayList();
+		this.tree.toList(listed);
+		expect(this.tree.size() == listed.size(), "size " + this.tree.size() + " but toList " + listed.size());
+		expect(this.tree.isEmpty() == listed.isEmpty(), "isEmpty " + this.tree.isEmpty());
+
+		Set found = distinct(listed);
+		for(int ii = 0; ii < this.objects.size(); ii++) {
+			Object o = this.objects.get(ii);
+			expect(found.contains(o), "lost " + describe(o));
+			expect(this.tree.contains((ISpatialObject)o), "contains misses " + describe(o));
+		}
+		for(int ii = 0; ii < this.removed.size(); ii++) {
+			Object o = this.removed.get(ii);
+			expect(!found.contains(o), "still holds removed " + describe(o));
+		}
+	}
+
+	private void checkInside(Rectangle rect) {
+		Set expected = identitySet(), solid = identitySet();
+		for(int ii = 0; ii < this.objects.size(); ii++) {
+			ISpatialObject o = (ISpatialObject)this.objects.get(ii);
+			if(o.containedPartiallyBy(rect)) {
+				expected.add(o);
+				if((o.getCategories() & ISpatialObject.CATEGORY_SOLID) != 0)
+					solid.add(o);
+			}
+		}
+
+		List listed = new ArrayList();
+		int count = this.tree.objectsInside(listed, rect);
+		expect(count == listed.size(), "objectsInside " + rect + " returned " + count + " for " + listed.size());
+		expect(distinct(listed).equals(expected), "objectsInside " + rect + " found "
+				+ distinct(listed).size() + " of " + expected.size());
+		expect(this.tree.objectsInside(null, rect) == count, "counting objectsInside " + rect
+				+ " gave " + this.tree.objectsInside(null, rect) + " not " + count);
+
+		listed.clear();
+		this.tree.objectsInside(listed, rect, ISpatialObject.CATEGORY_SOLID);
+		expect(distinct(listed).equals(solid), "solid objectsInside " + rect + " found "
+				+ distinct(listed).size() + " of " + solid.size());
+	}
+
+	private void checkIntersects(Rectangle rect) {
+		boolean expected = false;
+		for(int ii = 0; ii < this.objects.size() && !expected; ii++) {
+			ISpatialObject o = (ISpatialObject)this.objects.get(ii);
+			expected = isSolid(o) && o.intersects(rect);
+		}
+		expect(this.tree.geometryIntersects(rect) == expected, "geometryIntersects " + rect + " not " + expected);
+	}
+
+	private void checkIntersects(Point p) {
+		boolean expected = false;
+		for(int ii = 0; ii < this.objects.size() && !expected; ii++) {
+			ISpatialObject o = (ISpatialObject)this.objects.get(ii);
+			expected = isSolid(o) && o.intersects(p);
+		}
+		expect(this.tree.geometryIntersects(p) == expected, "geometryIntersects " + p + " not " + expected);
+	}
+
+	/**
+	 * The tree only tests objects with some area, then asks each solid
+	 * object except the one tested whether it finds it.
+	 */
+	private void checkIntersects(ISpatialObject obj) {
+		boolean expected = false;
+		if(obj.getMaxX() > obj.getMinX() && obj.getMaxY() > obj.getMinY()) {
+			for(int ii = 0; ii < this.objects.size() && !expected; ii++) {
+				ISpatialObject o = (ISpatialObject)this.objects.get(ii);
+				expected = (o != obj) && isSolid(o) && finds(obj, o);
+			}
+		}
+		expect(this.tree.geometryIntersects(obj) == expected, "geometryIntersects " + describe(obj) + " not " + expected);
+	}
+
+	/**
+	 * Ties make the order of equally distant objects arbitrary, so the
+	 * distances are compared rather than the objects.
+	 */
+	private void checkNearest(Point p) {
+		int k = 1 + this.rng.nextInt(8);
+		Class cc = null;
+		switch(this.rng.nextInt(3)) {
+		case 1:
+			cc = AnimatedPoint.class;
+			break;
+		case 2:
+			cc = AnimatedPolyline.class;
+			break;
+		}
+
+		List candidates = new ArrayList();
+		for(int ii = 0; ii < this.objects.size(); ii++) {
+			ISpatialObject o = (ISpatialObject)this.objects.get(ii);
+			if(isSolid(o) && (cc == null || o.getClass() == cc))
+				candidates.add(o);
+		}
+		double[] all = new double[candidates.size()];
+		for(int ii = 0; ii < all.length; ii++)
+			all[ii] = distanceSq((ISpatialObject)candidates.get(ii), p);
+		Arrays.sort(all);
+
+		List found = new ArrayList();
+		int count = this.tree.nearest(found, p, k, cc);
+		String what = "nearest " + k + " to " + p + (cc == null ? "" : " of " + cc.getName());
+		expect(count == found.size() && count == Math.min(k, all.length), what + " found " + count);
+		expect(distinct(found).size() == found.size(), what + " found an object twice");
+		for(int ii = 0; ii < found.size() && ii < all.length; ii++) {
+			double d = distanceSq((ISpatialObject)found.get(ii), p);
+			expect(d == all[ii], what + " has " + d + " at " + ii + ", not " + all[ii]);
+		}
+	}
+
+	/**
+	 * A pair collides when either object's geometryIntersects would find
+	 * the other, and is reported once.
+	 */
+	private void checkPairs( ) {
+		final Set reported = new HashSet();
+		final int[] twice = new int[1];
+		int count = this.tree.collidingPairs(new ICollisionVisitor() {
+			public boolean collided(ISpatialObject a, ISpatialObject b) {
+				if(!reported.add(pairKey(a, b)))
+					twice[0]++;
+				return true;
+			}
+		});
+
+		Set expected = new HashSet();
+		for(int ii = 0; ii < this.objects.size(); ii++) {
+			ISpatialObject a = (ISpatialObject)this.objects.get(ii);
+			if(!isSolid(a))
+				continue;
+			for(int jj = ii + 1; jj < this.objects.size(); jj++) {
+				ISpatialObject b = (ISpatialObject)this.objects.get(jj);
+				if(isSolid(b) && (finds(a, b) || finds(b, a)))
+					expected.add(pairKey(a, b));
+			}
+		}
+
+		expect(twice[0] == 0, "collidingPairs reported " + twice[0] + " pairs twice");
+		expect(count == reported.size() + twice[0], "collidingPairs returned " + count);
+		expect(reported.equals(expected), "collidingPairs found " + reported.size() + " of " + expected.size());
+	}
+
+	/**
+	 * Would geometryIntersects(a) find b, as QuadTreeNode tests it?
+	 */
+	/**
+	 * Points stop at the edge of their tree, so a point heading off it
+	 * sits in the strip along that edge from then on. The prediction for
+	 * a window must hold every point a plain query finds in the strip as
+	 * the clock runs through it, as it used to follow the line off the
+	 * tree and miss them.
+	 */
+	private void checkKineticEdge( ) {
+		QuadTree kinetic = new QuadTree(new Rectangle(SIDE, SIDE), SPLIT);
+		configure(kinetic);
+		KineticPoint[] points = new KineticPoint[KINETIC];
+		for(int pp = 0; pp < points.length; pp++) {
+			points[pp] = new KineticPoint(this.rng.nextInt(SIDE), this.rng.nextInt(SIDE));
+			kinetic.add(points[pp]);
+		}
+		// the first one as first reported: heads right fast, in the strip
+		// only once it has stopped
+		points[0].warpTo(SIDE - 24, SIDE / 2);
+		if(kinetic.isDeferredUpdates())
+			kinetic.commitMoves();
+		kinetic.setVelocity(points[0], 100, 0);
+		for(int pp = 1; pp < points.length; pp++)
+			kinetic.setVelocity(points[pp], this.rng.nextInt(81) - 40, this.rng.nextInt(81) - 40);
+
+		Rectangle[] strips = {
+			new Rectangle(0, 0, EDGE_STRIP, SIDE),
+			new Rectangle(SIDE - EDGE_STRIP, 0, EDGE_STRIP, SIDE),
+			new Rectangle(0, 0, SIDE, EDGE_STRIP),
+			new Rectangle(0, SIDE - EDGE_STRIP, SIDE, EDGE_STRIP),
+		};
+		Set[] predicted = new Set[strips.length];
+		for(int ss = 0; ss < strips.length; ss++) {
+			List found = new ArrayList();
+			kinetic.objectsInside(found, strips[ss], 1, 2);
+			predicted[ss] = distinct(found);
+		}
+
+		for(int tt = 0; tt <= 8; tt++) {
+			kinetic.advanceTo(1 + tt / 8.0);
+			if(kinetic.isDeferredUpdates())
+				kinetic.commitMoves();
+			for(int ss = 0; ss < strips.length; ss++) {
+				List inside = new ArrayList();
+				kinetic.objectsInside(inside, strips[ss]);
+				for(int ii = 0; ii < inside.size(); ii++) {
+					KineticPoint p = (KineticPoint)inside.get(ii);
+					expect(predicted[ss].contains(p), "objectsInside over [1, 2] misses kinetic point at "
+						+ p.getX() + "," + p.getY() + " in " + strips[ss] + " at " + kinetic.getTime());
+				}
+			}
+		}
+	}
+
+	private static boolean finds(ISpatialObject a, ISpatialObject b) {
+		if(a.pointCount() == 1)
+			return b.intersects(a.getBounds());
+		return b.intersects(a.points());
+	}
+
+	private static boolean isSolid(ISpatialObject o) {
+		return (o.getCategories() & ISpatialObject.CATEGORY_SOLID) != 0;
+	}
+
+	private static double distanceSq(ISpatialObject o, Point p) {
+		if(o.pointCount() == 1)
+			return p.distanceSq(o.getCentroidX(), o.getCentroidY());
+		return ((AbstractPolyline)o).distanceSq(p.x, p.y);
+	}
+
+	private Long pairKey(ISpatialObject a, ISpatialObject b) {
+		long ia = ((Integer)this.ids.get(a)).longValue(), ib = ((Integer)this.ids.get(b)).longValue();
+		return Long.valueOf(Math.min(ia, ib) << 32 | Math.max(ia, ib));
+	}
+
+	private static Set identitySet( ) {
+		return Collections.newSetFromMap(new IdentityHashMap());
+	}
+
+	private static Set distinct(List objects) {
+		Set set = identitySet();
+		set.addAll(objects);
+		return set;
+	}
+
+	/**
+	 * Half the queries line up with the cells of the top few levels.
+	 */
+	private Rectangle randomRect( ) {
+		if(this.rng.nextBoolean()) {
+			int cell = SIDE >> (1 + this.rng.nextInt(4));
+			return new Rectangle(cell * this.rng.nextInt(SIDE / cell), cell * this.rng.nextInt(SIDE / cell),
+					cell * (1 + this.rng.nextInt(2)), cell * (1 + this.rng.nextInt(2)));
+		}
+		return new Rectangle(this.rng.nextInt(SIDE + 16) - 16, this.rng.nextInt(SIDE + 16) - 16,
+				this.rng.nextInt(SIDE / 2), this.rng.nextInt(SIDE / 2));
+	}
+
+	private AnimatedPolyline randomPolyline( ) {
+		AnimatedPolyline line = new AnimatedPolyline();
+		int x = 32 + this.rng.nextInt(SIDE - 64), y = 32 + this.rng.nextInt(SIDE - 64);
+		line.add(x, y);
+		for(int pp = 2 + this.rng.nextInt(4); pp > 0; pp--) {
+			x = clamp(x + this.rng.nextInt(49) - 24);
+			y = clamp(y + this.rng.nextInt(49) - 24);
+			line.add(x, y);
+		}
+		return line;
+	}
+
+	/**
+	 * A straight wall along a cell edge of the top levels, vertical or
+	 * horizontal, sometimes bent at a right angle along the next edge.
+	 */
+	private AnimatedPolyline edgePolyline(int ll) {
+		int cell = SIDE >> (1 + this.rng.nextInt(3));
+		int at = cell * (1 + this.rng.nextInt(SIDE / cell - 1));
+		int from = this.rng.nextInt(SIDE / 2), to = from + 8 + this.rng.nextInt(SIDE / 2 - 8);
+
+		AnimatedPolyline line = new AnimatedPolyline();
+		if((ll & 1) == 0) {
+			line.add(at, from);
+			line.add(at, to);
+			if(ll % 3 == 0)
+				line.add(Math.min(at + cell, SIDE - 1), to);
+		} else {
+			line.add(from, at);
+			line.add(to, at);
+			if(ll % 3 == 0)
+				line.add(to, Math.min(at + cell, SIDE - 1));
+		}
+		return line;
+	}
+
+	private static int clamp(int v) {
+		return Math.max(0, Math.min(SIDE - 1, v));
+	}
+}
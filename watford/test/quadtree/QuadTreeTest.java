@@ -163,11 +163,8 @@ public class QuadTreeTest extends JFrame implements ActionListener, ItemListener
 						tp = new Point(x,y);
 					}
 					
-					if(qtp.kqt.geometryContains(tp) &&
-							!qtp.kqt.geometryIntersects(tp) ) {
-								points[pp].translate(tp);
-								moved.put(points[pp],points[pp]);
-					}
+					if(qtp.kqt.tryMove(points[pp], tp.x, tp.y) == null)
+						moved.put(points[pp],points[pp]);
 				}
 				repaint();
 			}
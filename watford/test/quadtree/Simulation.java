@@ -0,0 +1,354 @@
+/** Quad Tree Test Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.test.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Random;
+
+import watford.util.quadtree.QuadTree;
+
+/** Headless, seeded version of the QuadTreeTest animation. Each tick moves
+ * half the lines and then half the points exactly like moveLines and
+ * movePoints do: a fixed move quota of distinct objects, one pixel steps,
+ * ANT_VARIANCE_FROM_TASK chance of ignoring the task, and points only
+ * move where QuadTree.tryTranslate finds the way clear. The mouse
+ * follow point is replaced by a per-scenario task.
+ * 
+ * The same seed always produces the same world and the same moves.
+ */
+public class Simulation {
+	/** Points scattered over the whole board, no task (pure random walk) */
+	public final static int SCENARIO_UNIFORM = 0;
+	/** Points start in clusters and chase a target orbiting the board */
+	public final static int SCENARIO_SWARM = 1;
+	/** Points flow both ways down a walled corridor */
+	public final static int SCENARIO_CORRIDOR = 2;
+	
+	public final static String[] SCENARIO_NAMES = { "uniform", "swarm", "corridor" };
+	
+	private final Random rng;
+	private final int scenario;
+	private final int side;
+	private final QuadTree tree;
+	private final AnimatedPoint[] points;
+	private final AnimatedPolyline[] plines;
+	private final int[] pointOrder;
+	private final int[] lineOrder;
+	private final Rectangle lineBounds;
+	private int corridorTop, corridorBottom;
+	private int[] clusterX, clusterY;
+	private long tick;
+	private int blocked;
+	
+	/**
+	 * @param seed Random seed, fixes world layout and all moves
+	 * @param scenario One of the SCENARIO_ constants
+	 * @param pointCount Number of AnimatedPoints
+	 * @param splitSize QuadTree bucket size
+	 */
+	public Simulation(long seed, int scenario, int pointCount, int splitSize) {
+		if(scenario < SCENARIO_UNIFORM || scenario > SCENARIO_CORRIDOR)
+			throw new IllegalArgumentException("Unknown scenario: " + scenario);
+		
+		this.rng = new Random(seed);
+		this.scenario = scenario;
+		this.side = sideFor(pointCount);
+		this.tree = new QuadTree(new Rectangle(this.side, this.side), splitSize);
+		this.lineBounds = new Rectangle();
+		this.tick = 0;
+		
+		if(scenario == SCENARIO_CORRIDOR)
+			buildCorridor(pointCount);
+		else if(scenario == SCENARIO_SWARM)
+			buildClusters(pointCount);
+		
+		int lineCount = (int)((long)TestConfig.POLYLINE_COUNT * pointCount / TestConfig.POINT_COUNT);
+		this.plines = new AnimatedPolyline[Math.max(lineCount, 1)];
+		for(int ll = 0; ll < this.plines.length; ll++) {
+			this.plines[ll] = randomPolyline();
+			this.tree.add(this.plines[ll]);
+		}
+		
+		this.points = new AnimatedPoint[pointCount];
+		for(int pp = 0; pp < this.points.length; pp++) {
+			this.points[pp] = new AnimatedPoint(spawnPoint(pp));
+			this.tree.add(this.points[pp]);
+		}
+		
+		this.pointOrder = identity(this.points.length);
+		this.lineOrder = identity(this.plines.length);
+	}
+	
+	/**
+	 * Board edge length which keeps the density of the demo board
+	 * (TestConfig.POINT_COUNT points on a TestConfig.BOARD_SIZE square).
+	 * @param pointCount Number of points on the board
+	 * @return Board edge length
+	 */
+	public static int sideFor(int pointCount) {
+		double density = (double)TestConfig.POINT_COUNT
+			/ ((double)TestConfig.BOARD_SIZE * TestConfig.BOARD_SIZE);
+		return Math.max(TestConfig.BOARD_SIZE, (int)Math.ceil(Math.sqrt(pointCount / density)));
+	}
+	
+	public QuadTree getTree( ) {
+		return this.tree;
+	}
+	
+	public AnimatedPoint[] getPoints( ) {
+		return this.points;
+	}
+	
+	public AnimatedPolyline[] getPolylines( ) {
+		return this.plines;
+	}
+	
+	public int getSide( ) {
+		return this.side;
+	}
+	
+	/**
+	 * @return Number of points the last step tried to move but which
+	 * tryTranslate turned back. Points with nowhere to go are not counted.
+	 */
+	public int getBlocked( ) {
+		return this.blocked;
+	}
+	
+	/**
+	 * Run a number of ticks back to back, timing each one.
+	 * @param ticks Number of ticks to run
+	 * @param deadlineMillis Per-tick deadline, usually TestConfig.TIME_SLICE
+	 * @return Timing results
+	 */
+	public SimulationStats run(int ticks, long deadlineMillis) {
+		SimulationStats stats = new SimulationStats(ticks, deadlineMillis);
+		for(int tt = 0; tt < ticks; tt++) {
+			long start = System.nanoTime();
+			int moved = step();
+			stats.record(System.nanoTime() - start, moved, this.blocked);
+		}
+		return stats;
+	}
+	
+	/**
+	 * Advance the simulation by one tick: lines first, then points,
+	 * as QuadTreeTest's moveLines action does. With deferred updates
+	 * on the tree the tick ends with a commitMoves.
+	 * @return Number of points which moved
+	 * @see #getBlocked()
+	 */
+	public int step( ) {
+		moveLines();
+		int moved = movePoints();
+		if(this.tree.isDeferredUpdates())
+			this.tree.commitMoves();
+		this.tick++;
+		return moved;
+	}
+	
+	private void moveLines( ) {
+		int moveQuota = this.plines.length / 2;
+		for(int tt = 0; tt < moveQuota; tt++) {
+			int ll = pick(this.lineOrder, tt);
+			AnimatedPolyline line = this.plines[ll];
+			
+			int xDrift, yDrift;
+			if(!hasTask() || this.rng.nextDouble() < TestConfig.ANT_VARIANCE_FROM_TASK) {
+				double vector = randomHeading();
+				xDrift = (int)(Math.cos(vector)/Math.abs(Math.cos(vector)));
+				yDrift = (int)(Math.sin(vector)/Math.abs(Math.sin(vector)));
+			} else {
+				Point c = line.centroid();
+				xDrift = sign(taskX(ll) - c.x);
+				yDrift = sign(taskY(ll) - c.y);
+			}
+			
+			// the demo lets lines wander off the board and fall out of
+			// the tree, keep them on it so long runs stay comparable
+			this.lineBounds.setBounds(line.getBounds());
+			this.lineBounds.translate(xDrift, yDrift);
+			if(this.tree.geometryContains(this.lineBounds))
+				line.translate(xDrift, yDrift);
+		}
+	}
+	
+	private int movePoints( ) {
+		int moved = 0;
+		this.blocked = 0;
+		int moveQuota = this.points.length / 2;
+		for(int tt = 0; tt < moveQuota; tt++) {
+			int pp = pick(this.pointOrder, tt);
+			AnimatedPoint p = this.points[pp];
+			
+			int xDrift, yDrift;
+			if(!hasTask() || this.rng.nextDouble() < TestConfig.ANT_VARIANCE_FROM_TASK) {
+				double vector = randomHeading();
+				xDrift = (int)(Math.cos(vector)/Math.abs(Math.cos(vector)));
+				yDrift = (int)(Math.sin(vector)/Math.abs(Math.sin(vector)));
+			} else {
+				xDrift = sign(taskX(pp) - p.getX());
+				yDrift = sign(taskY(pp) - p.getY());
+			}
+			
+			// standing still is not a move, nor a blocked one
+			if(xDrift == 0 && yDrift == 0)
+				continue;
+			
+			if(this.tree.tryTranslate(p, xDrift, yDrift) == null)
+				moved++;
+			else
+				this.blocked++;
+		}
+		
+		return moved;
+	}
+	
+	/**
+	 * Choose the tt'th distinct object of this tick with a partial
+	 * Fisher-Yates shuffle, the allocation free equivalent of the
+	 * demo's Hashtable of already moved objects.
+	 */
+	private int pick(int[] order, int tt) {
+		int jj = tt + this.rng.nextInt(order.length - tt);
+		int swap = order[tt];
+		order[tt] = order[jj];
+		order[jj] = swap;
+		return order[tt];
+	}
+	
+	/**
+	 * Random heading in [-PI,PI), the demo takes the sign of its cos and
+	 * sin as the drift, i.e. one of the four diagonals.
+	 */
+	private double randomHeading( ) {
+		return (this.rng.nextDouble()*2.0*Math.PI)-Math.PI;
+	}
+	
+	private static int sign(int d) {
+		return d / (d != 0 ? Math.abs(d) : 1);
+	}
+	
+	private boolean hasTask( ) {
+		return this.scenario != SCENARIO_UNIFORM;
+	}
+	
+	private int taskX(int pp) {
+		if(this.scenario == SCENARIO_SWARM) {
+			double angle = this.tick * 0.01;
+			return (int)(this.side / 2 + Math.cos(angle) * this.side / 3);
+		}
+		
+		// corridor: even agents flow east, odd agents flow west
+		return ((pp & 1) == 0) ? this.side - 2 : 1;
+	}
+	
+	private int taskY(int pp) {
+		if(this.scenario == SCENARIO_SWARM) {
+			double angle = this.tick * 0.01;
+			return (int)(this.side / 2 + Math.sin(angle) * this.side / 3);
+		}
+		
+		return (this.corridorTop + this.corridorBottom) / 2;
+	}
+	
+	private Point spawnPoint(int pp) {
+		Point p = new Point();
+		do {
+			switch(this.scenario) {
+			case SCENARIO_SWARM: {
+				int cc = pp % this.clusterX.length;
+				double sigma = this.side / 20.0;
+				p.x = clamp((int)(this.clusterX[cc] + this.rng.nextGaussian() * sigma));
+				p.y = clamp((int)(this.clusterY[cc] + this.rng.nextGaussian() * sigma));
+				break;
+			}
+			case SCENARIO_CORRIDOR:
+				p.x = this.rng.nextInt(this.side);
+				p.y = this.corridorTop + 1 + this.rng.nextInt(this.corridorBottom - this.corridorTop - 1);
+				break;
+			default:
+				p.x = this.rng.nextInt(this.side);
+				p.y = this.rng.nextInt(this.side);
+				break;
+			}
+		} while(this.tree.geometryIntersects(p));
+		
+		return p;
+	}
+	
+	private int clamp(int v) {
+		return Math.max(0, Math.min(this.side - 1, v));
+	}
+	
+	/**
+	 * One gaussian cluster per 2000 points, centred away from the edges.
+	 */
+	private void buildClusters(int pointCount) {
+		int clusters = Math.max(1, pointCount / 2000);
+		this.clusterX = new int[clusters];
+		this.clusterY = new int[clusters];
+		for(int cc = 0; cc < clusters; cc++) {
+			this.clusterX[cc] = (int)(this.side * (0.1 + 0.8 * this.rng.nextDouble()));
+			this.clusterY[cc] = (int)(this.side * (0.1 + 0.8 * this.rng.nextDouble()));
+		}
+	}
+	
+	/**
+	 * Two static walls running the width of the board. The band between
+	 * them holds the points at twice the demo density.
+	 */
+	private void buildCorridor(int pointCount) {
+		double density = (double)TestConfig.POINT_COUNT
+			/ ((double)TestConfig.BOARD_SIZE * TestConfig.BOARD_SIZE);
+		int band = (int)Math.ceil(pointCount / (2.0 * density * this.side));
+		band = Math.max(16, Math.min(this.side - 4, band));
+		
+		this.corridorTop = (this.side - band) / 2;
+		this.corridorBottom = this.corridorTop + band;
+		
+		Polyline top = new Polyline(), bottom = new Polyline();
+		for(int x = 0; x < this.side; x += TestConfig.POLYLINE_MAX_SEGMENT_SIZE) {
+			top.add(x, this.corridorTop);
+			bottom.add(x, this.corridorBottom);
+		}
+		top.add(this.side - 1, this.corridorTop);
+		bottom.add(this.side - 1, this.corridorBottom);
+		
+		this.tree.add(top);
+		this.tree.add(bottom);
+	}
+	
+	private AnimatedPolyline randomPolyline( ) {
+		AnimatedPolyline line = new AnimatedPolyline();
+		int x = this.rng.nextInt(this.side);
+		int y = this.rng.nextInt(this.side);
+		line.add(x, y);
+		
+		Point p = new Point();
+		for(int pp = 0; pp < TestConfig.POLYLINE_MAX_SEGMENT_COUNT; pp++) {
+			do {
+				int dx = this.rng.nextInt(TestConfig.POLYLINE_MAX_SEGMENT_SIZE);
+				int dy = this.rng.nextInt(TestConfig.POLYLINE_MAX_SEGMENT_SIZE);
+				p.x = x + (int)(dx * (this.rng.nextDouble() - this.rng.nextDouble()));
+				p.y = y + (int)(dy * (this.rng.nextDouble() - this.rng.nextDouble()));
+			} while(!this.tree.geometryContains(p));
+			
+			line.add(p.x, p.y);
+			x = p.x;
+			y = p.y;
+		}
+		
+		return line;
+	}
+	
+	private static int[] identity(int n) {
+		int[] order = new int[n];
+		for(int ii = 0; ii < n; ii++)
+			order[ii] = ii;
+		return order;
+	}
+}
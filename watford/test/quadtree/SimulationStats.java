@@ -0,0 +1,102 @@
+/** Quad Tree Test Suite
+ * Created on 17 October 2026, see LICENSE.
+ */
+
+package watford.test.quadtree;
+
+import java.util.Arrays;
+
+/** Per-tick timing for a Simulation run. Records the wall time of every
+ * tick and counts those which took longer than the tick deadline
+ * (TestConfig.TIME_SLICE by default), which is what the old "Missed
+ * deadline" printout in QuadTreeTest was after.
+ */
+public class SimulationStats {
+	private long[] tickNanos;
+	private int ticks;
+	private long totalNanos;
+	private long deadlineNanos;
+	private int missed;
+	private long worstNanos;
+	private long moves;
+	private long blocked;
+	
+	public SimulationStats(int expectedTicks, long deadlineMillis) {
+		this.tickNanos = new long[Math.max(expectedTicks, 16)];
+		this.deadlineNanos = deadlineMillis * 1000000L;
+	}
+	
+	/**
+	 * Record a finished tick.
+	 * @param nanos Wall time the tick took
+	 * @param moved Number of objects which moved
+	 * @param stopped Number of attempted moves which were rejected
+	 */
+	public void record(long nanos, int moved, int stopped) {
+		if(this.ticks == this.tickNanos.length)
+			this.tickNanos = Arrays.copyOf(this.tickNanos, this.ticks * 2);
+		
+		this.tickNanos[this.ticks++] = nanos;
+		this.totalNanos += nanos;
+		this.moves += moved;
+		this.blocked += stopped;
+		
+		if(nanos > this.deadlineNanos)
+			this.missed++;
+		if(nanos > this.worstNanos)
+			this.worstNanos = nanos;
+	}
+	
+	public int getTicks( ) {
+		return this.ticks;
+	}
+	
+	public long getMoves( ) {
+		return this.moves;
+	}
+	
+	public long getBlocked( ) {
+		return this.blocked;
+	}
+	
+	public int getMissedDeadlines( ) {
+		return this.missed;
+	}
+	
+	public double getTicksPerSecond( ) {
+		if(this.totalNanos == 0)
+			return 0.0;
+		return this.ticks / (this.totalNanos / 1e9);
+	}
+	
+	/**
+	 * Tick latency at the given percentile (nearest rank).
+	 * @param pct Percentile in [0,100]
+	 * @return Latency in nanoseconds
+	 */
+	public long getPercentileNanos(double pct) {
+		if(this.ticks == 0)
+			return 0;
+		
+		long[] sorted = Arrays.copyOf(this.tickNanos, this.ticks);
+		Arrays.sort(sorted);
+		int rank = (int)Math.ceil((pct / 100.0) * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+	}
+	
+	public long getWorstNanos( ) {
+		return this.worstNanos;
+	}
+	
+	public String toString( ) {
+		return "ticks=" + this.ticks
+			+ " ticks/sec=" + String.format("%.1f", getTicksPerSecond())
+			+ " p50=" + String.format("%.3fms", getPercentileNanos(50) / 1e6)
+			+ " p99=" + String.format("%.3fms", getPercentileNanos(99) / 1e6)
+			+ " max=" + String.format("%.3fms", this.worstNanos / 1e6)
+			+ " missed=" + this.missed + "/" + this.ticks
+			+ " (deadline " + (this.deadlineNanos / 1000000L) + "ms)"
+			+ " moves=" + this.moves
+			+ " blocked=" + this.blocked;
+	}
+}
@@ -15,19 +15,19 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.GeneralPath;
 import java.util.Collection;
-import java.util.Observable;
 
-/** AbstractKineticObject provides a convenient wrapper around the
- * 1 class and 2 interfaces you need to embody in order to be part
- * of a Quadtree. Polymorphism that allowed interfaces to implement
- * interfaces would be very nice and could solve such a problem.
+/** AbstractKineticObject provides a convenient base for single point
+ * objects in a Quadtree. A single point object only ever lives in one
+ * leaf, so the parent is held directly and notified with notifyMoved,
+ * no observer list, lock or allocation involved.
  * 
  * @author Christopher A. Watford
  *
  */
-public abstract class AbstractKineticObject extends Observable
-	implements ISpatialObject {
+public abstract class AbstractKineticObject implements ISpatialObject {
 	private transient AbstractSpatialSet parent;
+	private int categories = (this instanceof INoClipping)
+		? CATEGORY_NO_CLIPPING : CATEGORY_DEFAULT;
 
 	/**
 	 * Create an AbstractKineticObject with no parent.
@@ -48,8 +48,8 @@ public abstract class AbstractKineticObject extends Observable
 	/**
 	 * Move the object to the point.
 	 * 
-	 * NB: You must notify the parent node if the object
-	 * moves in a manner that affects the parent!
+	 * NB: You must call notifyMoved if the object moves
+	 * in a manner that affects the parent!
 	 * @param p Point to move the object to.
 	 */
 	public abstract void translate(Point p);
@@ -57,35 +57,85 @@ public abstract class AbstractKineticObject extends Observable
 	/**
 	 * Move the object by dx and dy.
 	 * 
-	 * NB: You must notify the parent node if the object
-	 * moves in a manner that affects the parent!
+	 * NB: You must call notifyMoved if the object moves
+	 * in a manner that affects the parent!
 	 * @param dx Distance to move horizontally
 	 * @param dy Distance to move vertically
 	 */
 	public abstract void translate(int dx, int dy);
 	
 	public abstract Rectangle getBounds();
+	
+	/*
+	 * The primitive accessors fall back on getBounds and centroid.
+	 * Override them, the tree calls them on every visit.
+	 */
+	
+	public int getMinX( ) {
+		return getBounds().x;
+	}
+	
+	public int getMinY( ) {
+		return getBounds().y;
+	}
+	
+	public int getMaxX( ) {
+		Rectangle r = getBounds();
+		return r.x + r.width;
+	}
+	
+	public int getMaxY( ) {
+		Rectangle r = getBounds();
+		return r.y + r.height;
+	}
+	
+	public int getCentroidX( ) {
+		return centroid().x;
+	}
+	
+	public int getCentroidY( ) {
+		return centroid().y;
+	}
 
 	public abstract boolean containedPartiallyBy(Rectangle rect);
 	public abstract boolean intersects(GeneralPath path);
 	public abstract boolean intersects(Rectangle rect);
 	public abstract boolean intersects(Point pnt);
 	
+	public int getCategories( ) {
+		return this.categories;
+	}
+	
+	/**
+	 * Put the object in other categories. Set them before adding the
+	 * object to a tree, or remove and re-add it.
+	 * @param categories Category bits, see ISpatialObject.CATEGORY_DEFAULT
+	 */
+	public void setCategories(int categories) {
+		if(categories == 0)
+			throw new IllegalArgumentException("An object needs at least one category");
+		this.categories = categories;
+	}
+	
 	/**
-	 * Sets the parent node of the object, adding the new
-	 * parent as an observer.
+	 * Tell the parent node we moved.
+	 */
+	protected final void notifyMoved( ) {
+		AbstractSpatialSet p = this.parent;
+		if(p != null)
+			p.objectMoved(this);
+	}
+	
+	/**
+	 * Sets the parent node of the object, replacing any
+	 * previous parent.
 	 * @param p Set the parent node of this object
 	 */
 	public final void addParent(AbstractSpatialSet p) {
-		deleteParent(this.parent);
 		this.parent = p;
-		
-		if(p != null)
-			this.addObserver(p);
 	}
 	
 	public final void deleteParent(AbstractSpatialSet p) {
-		this.deleteObserver(p);
 		if(p == this.parent)
 			this.parent = null;
 	}
@@ -15,31 +15,41 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.GeneralPath;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Hashtable;
-import java.util.Observable;
 
 /**
+ * A polyline lives in every leaf it crosses, so it keeps a small array
+ * of parents and notifies each of them directly in notifyMoved.
+ * 
+ * Crossing means one of its segments passes through the leaf. The demo
+ * polylines test their segments (segmentsIntersect, segmentsTouch), not
+ * the closed and filled shape of their GeneralPath, so a leaf the line
+ * only encloses doesn't hold it, and probes inside the enclosure miss.
  * 
  * @author Christopher A. Watford
  *
  */
-public abstract class AbstractPolyline extends Observable
-	implements ISpatialObject, Serializable {
+public abstract class AbstractPolyline implements ISpatialObject, Serializable {
 
-	private transient Hashtable parents;
+	private transient AbstractSpatialSet[] parents;
+	private transient int parentCount;
+	private transient AbstractSpatialSet[] notifying;
+	private int categories = (this instanceof INoClipping)
+		? CATEGORY_NO_CLIPPING : CATEGORY_DEFAULT;
 	protected int[] x, y;
 	private int size;
 	protected int count;
+	private int minX, minY, maxX, maxY;
 	
 	protected static final int POLYLINE_DEFAULT_FILL = 32;
+	private static final int[] NO_SEGMENTS = new int[0];
 	
 	public AbstractPolyline( ) {
 		this.count = 0;
 		this.size = POLYLINE_DEFAULT_FILL;
 		this.x = new int[this.size];
 		this.y = new int[this.size];
-		this.parents = new Hashtable();
 	}
 
 	public AbstractPolyline(int[] xx, int[] yy, int count) {
@@ -50,10 +60,10 @@ public abstract class AbstractPolyline extends Observable
 		this.size = (count * 3) / 2;
 		this.x = new int[this.size];
 		this.y = new int[this.size];
-		this.parents = new Hashtable();
 
 		System.arraycopy(xx, 0, this.x, 0, count);
 		System.arraycopy(yy, 0, this.y, 0, count);
+		updateBounds();
 	}
 	
 	public AbstractPolyline(AbstractSpatialSet parent) {
@@ -74,12 +84,22 @@ public abstract class AbstractPolyline extends Observable
 		this.x[this.count] = x;
 		this.y[this.count] = y;
 		
+		if(this.count == 0) {
+			this.minX = this.maxX = x;
+			this.minY = this.maxY = y;
+		} else {
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+		}
+		
 		if(++this.count == this.size) {
 			int[] xx = new int[this.size*2],
 				yy = new int[this.size*2];
 			
-			System.arraycopy(this.x, 0, xx, 0, this.count-1);
-			System.arraycopy(this.y, 0, yy, 0, this.count-1);
+			System.arraycopy(this.x, 0, xx, 0, this.count);
+			System.arraycopy(this.y, 0, yy, 0, this.count);
 			
 			this.x = xx;
 			this.y = yy;
@@ -97,28 +117,159 @@ public abstract class AbstractPolyline extends Observable
 	public abstract boolean intersects(Rectangle rect);
 	public abstract boolean intersects(Point pnt);
 	public abstract boolean containedPartiallyBy(Rectangle rect);
-	public abstract Rectangle getBounds();
 	public abstract void translate(Point p);
 	public abstract void translate(int dx, int dy);
 	
+	/**
+	 * Bounds of the vertices, kept up to date by add and
+	 * translatePoints rather than scanning the path on every call.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(this.minX, this.minY,
+				this.maxX - this.minX, this.maxY - this.minY);
+	}
+	
+	public boolean containedFullyBy(Rectangle rect) {
+		return rect.contains(this.minX, this.minY,
+				this.maxX - this.minX, this.maxY - this.minY);
+	}
+	
+	/**
+	 * Move every vertex, and the cached bounds with them. Subclasses
+	 * which move should call this from translate rather than editing
+	 * the vertex arrays themselves.
+	 */
+	protected void translatePoints(int dx, int dy) {
+		for(int ii = 0; ii < this.count; ii++) {
+			this.x[ii] += dx;
+			this.y[ii] += dy;
+		}
+		this.minX += dx;
+		this.minY += dy;
+		this.maxX += dx;
+		this.maxY += dy;
+	}
+	
+	/**
+	 * Recompute the cached bounds from the vertex arrays, for
+	 * subclasses which have changed the vertices some other way.
+	 */
+	protected void updateBounds( ) {
+		if(this.count == 0) {
+			this.minX = this.minY = this.maxX = this.maxY = 0;
+			return;
+		}
+		
+		this.minX = this.maxX = this.x[0];
+		this.minY = this.maxY = this.y[0];
+		for(int ii = 1; ii < this.count; ii++) {
+			this.minX = Math.min(this.minX, this.x[ii]);
+			this.minY = Math.min(this.minY, this.y[ii]);
+			this.maxX = Math.max(this.maxX, this.x[ii]);
+			this.maxY = Math.max(this.maxY, this.y[ii]);
+		}
+	}
+	
+	/**
+	 * Tell our parents we moved, once per owner (every leaf of a
+	 * QuadTree shares the tree as owner, and the first one notified
+	 * updates them all). Parents may come and go while they handle the
+	 * move, so they are notified from a copy of the parent list, the
+	 * same way Observable used to, but the copy is reused between calls.
+	 */
+	protected final void notifyMoved( ) {
+		int n = this.parentCount;
+		if(n == 0)
+			return;
+		
+		AbstractSpatialSet[] snapshot = this.notifying;
+		this.notifying = null;
+		if(snapshot == null || snapshot.length < n)
+			snapshot = new AbstractSpatialSet[this.parents.length];
+		System.arraycopy(this.parents, 0, snapshot, 0, n);
+		
+		// notified parents are packed at the front of the snapshot
+		int notified = 0;
+		for(int ii = 0; ii < n; ii++) {
+			AbstractSpatialSet p = snapshot[ii];
+			Object owner = p.getOwner();
+			
+			boolean seen = false;
+			for(int jj = 0; jj < notified && !seen; jj++)
+				seen = (snapshot[jj].getOwner() == owner);
+			
+			if(!seen) {
+				p.objectMoved(this);
+				snapshot[notified++] = p;
+			}
+		}
+		
+		for(int ii = 0; ii < n; ii++)
+			snapshot[ii] = null;
+		
+		this.notifying = snapshot;
+	}
+	
+	public int getCategories( ) {
+		return this.categories;
+	}
+	
+	/**
+	 * Put the object in other categories. Set them before adding the
+	 * object to a tree, or remove and re-add it.
+	 * @param categories Category bits, see ISpatialObject.CATEGORY_DEFAULT
+	 */
+	public void setCategories(int categories) {
+		if(categories == 0)
+			throw new IllegalArgumentException("An object needs at least one category");
+		this.categories = categories;
+	}
+	
 	public final void deleteParent(AbstractSpatialSet p) {
-		this.parents.remove(p);
-		this.deleteObserver(p);
+		for(int ii = 0; ii < this.parentCount; ii++) {
+			if(this.parents[ii] == p) {
+				this.parents[ii] = this.parents[--this.parentCount];
+				this.parents[this.parentCount] = null;
+				return;
+			}
+		}
 	}
 
 	public final void addParent(AbstractSpatialSet p) {
-		this.parents.put(p,p);
-		this.addObserver(p);
+		if(p == null || hasParent(p))
+			return;
+		
+		if(this.parents == null)
+			this.parents = new AbstractSpatialSet[4];
+		else if(this.parentCount == this.parents.length)
+			this.parents = Arrays.copyOf(this.parents, this.parentCount * 2);
+		
+		this.parents[this.parentCount++] = p;
 	}
 	
 	public final boolean hasParent(AbstractSpatialSet p) {
-		if(parents == null)
-			parents = new Hashtable();
-		return parents.containsKey(p);
+		for(int ii = 0; ii < this.parentCount; ii++) {
+			if(this.parents[ii] == p)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Number of parents, for walking them without getParents' copy.
+	 */
+	final int parentCount( ) {
+		return this.parentCount;
+	}
+	
+	final AbstractSpatialSet parentAt(int ii) {
+		return this.parents[ii];
 	}
 	
 	public final Collection getParents() {
-		return parents.values();
+		if(this.parentCount == 0)
+			return Arrays.asList(new AbstractSpatialSet[0]);
+		return Arrays.asList(Arrays.copyOf(this.parents, this.parentCount));
 	}
 	
 	public AbstractSpatialSet getParent() {
@@ -132,4 +283,162 @@ public abstract class AbstractPolyline extends Observable
 	public Point centroid() {
 		return new Point(x[count-1],y[count-1]);
 	}
+	
+	public int getCentroidX( ) {
+		return this.x[this.count-1];
+	}
+	
+	public int getCentroidY( ) {
+		return this.y[this.count-1];
+	}
+	
+	public int getMinX( ) {
+		return this.minX;
+	}
+	
+	public int getMinY( ) {
+		return this.minY;
+	}
+	
+	public int getMaxX( ) {
+		return this.maxX;
+	}
+	
+	public int getMaxY( ) {
+		return this.maxY;
+	}
+	
+	/**
+	 * Find the runs of consecutive segments which cross or touch a
+	 * rectangle, segment ii running from point ii to point ii+1. Used by
+	 * segment indexing QuadTrees to remember which part of the line each
+	 * leaf holds; touching counts so a segment along the edge between two
+	 * leaves is held by both.
+	 * @param rect Rectangle to test the segments against
+	 * @return First and last segment of each run, in pairs (empty if
+	 * 	no segment crosses the rectangle)
+	 */
+	public int[] segmentsCrossing(Rectangle rect) {
+		int[] runs = NO_SEGMENTS;
+		int size = 0, first = -1;
+
+		for(int ii = 0; ii < this.count - 1; ii++) {
+			boolean crosses = rect.intersectsLine(this.x[ii], this.y[ii], this.x[ii+1], this.y[ii+1]);
+			if(crosses && first < 0) {
+				first = ii;
+			} else if(!crosses && first >= 0) {
+				if(size == runs.length)
+					runs = Arrays.copyOf(runs, Math.max(4, size * 2));
+				runs[size++] = first;
+				runs[size++] = ii - 1;
+				first = -1;
+			}
+		}
+
+		if(first >= 0) {
+			if(size == runs.length)
+				runs = Arrays.copyOf(runs, size + 2);
+			runs[size++] = first;
+			runs[size++] = this.count - 2;
+		}
+
+		return (size == runs.length) ? runs : Arrays.copyOf(runs, size);
+	}
+
+	/**
+	 * Test only the given segments against a rectangle, rather than the
+	 * whole line.
+	 * @param rect Rectangle to test
+	 * @param runs Segment runs from segmentsCrossing
+	 * @return Did any of the segments intersect?
+	 */
+	public boolean intersects(Rectangle rect, int[] runs) {
+		return intersects(rect.x, rect.y, rect.width, rect.height, runs);
+	}
+	
+	/**
+	 * @see #intersects(Rectangle, int[])
+	 */
+	public boolean intersects(int rx, int ry, int rw, int rh, int[] runs) {
+		for(int rr = 0; rr < runs.length; rr += 2) {
+			int last = Math.min(runs[rr+1], this.count - 2);
+			if(PolylineGeometry.intersects(this.x, this.y, runs[rr], last, rx, ry, rw, rh))
+				return true;
+		}
+
+		return false;
+	}
+	
+	/**
+	 * Does any segment lie along the left or top edge of a rectangle?
+	 * QuadTree cells own those edges, see PolylineGeometry.alongEdges.
+	 * Lines which don't reach either edge are turned away on their bounds.
+	 * @param rect Cell to test
+	 * @return Does the line run along the cell's edge?
+	 */
+	boolean alongEdges(Rectangle rect) {
+		if((this.minX > rect.x || this.maxX < rect.x) && (this.minY > rect.y || this.maxY < rect.y))
+			return false;
+		return PolylineGeometry.alongEdges(this.x, this.y, this.count,
+				rect.x, rect.y, rect.width, rect.height);
+	}
+	
+	/**
+	 * Does any segment pass through the inside of a rectangle? Lines
+	 * whose bounds miss the rectangle are turned away before any
+	 * segment is looked at, see PolylineGeometry.
+	 * @param rect Rectangle to test
+	 * @return Did the line hit the rectangle?
+	 */
+	protected boolean segmentsIntersect(Rectangle rect) {
+		if(rect.x >= this.maxX || rect.y >= this.maxY
+				|| rect.x + rect.width <= this.minX || rect.y + rect.height <= this.minY)
+			return false;
+		return PolylineGeometry.intersects(this.x, this.y, this.count,
+				rect.x, rect.y, rect.width, rect.height);
+	}
+	
+	/**
+	 * Does any segment cross the pixel at a point?
+	 * @see PolylineGeometry#touches(int[], int[], int, int, int)
+	 */
+	protected boolean segmentsTouch(Point pnt) {
+		if(pnt.x >= this.maxX || pnt.y >= this.maxY
+				|| pnt.x + 1 <= this.minX || pnt.y + 1 <= this.minY)
+			return false;
+		return PolylineGeometry.touches(this.x, this.y, this.count, pnt.x, pnt.y);
+	}
+	
+	/**
+	 * Squared distance from a point to the nearest segment of the
+	 * polyline, computed from the vertex arrays.
+	 * @param px Horizontal position
+	 * @param py Vertical position
+	 * @return Squared distance, 0 if the point lies on the line
+	 */
+	public double distanceSq(int px, int py) {
+		if(this.count == 0)
+			return Double.POSITIVE_INFINITY;
+		
+		double dx0 = px - this.x[0], dy0 = py - this.y[0];
+		double best = dx0*dx0 + dy0*dy0;
+		for(int ii = 1; ii < this.count && best > 0; ii++) {
+			double ax = this.x[ii-1], ay = this.y[ii-1];
+			double sx = this.x[ii] - ax, sy = this.y[ii] - ay;
+			double len = sx*sx + sy*sy;
+			
+			double t = 0;
+			if(len > 0) {
+				t = ((px - ax)*sx + (py - ay)*sy) / len;
+				t = (t < 0) ? 0 : ((t > 1) ? 1 : t);
+			}
+			
+			double dx = px - (ax + t*sx), dy = py - (ay + t*sy);
+			double d = dx*dx + dy*dy;
+			if(d < best)
+				best = d;
+		}
+		
+		return best;
+	}
 }
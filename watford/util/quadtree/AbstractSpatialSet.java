@@ -11,14 +11,27 @@
 
 package watford.util.quadtree;
 
-import java.util.Observer;
-
-/** AbstractSpatialSet is a helper class to show we need nodes that both
- * implement ISpatialSet and Observer. Polymorphism would help me out a
- * lot with this!
+/** AbstractSpatialSet is the parent side of the kinetic contract: a set
+ * which owns spatial objects and wants to hear when they move. Objects
+ * call objectMoved on their owning set(s) directly, there is no
+ * observer list in between.
  * 
  * @author Christopher A. Watford
  */
-public abstract class AbstractSpatialSet implements ISpatialSet, Observer {
-
+public abstract class AbstractSpatialSet implements ISpatialSet {
+	/**
+	 * Called by a member object after it has moved.
+	 * @param obj Object which moved
+	 */
+	public abstract void objectMoved(ISpatialObject obj);
+	
+	/**
+	 * The object which handles moves for this set. An object held by
+	 * several sets with the same owner only notifies one of them, which
+	 * must then bring all of them up to date.
+	 * @return This set, unless overridden
+	 */
+	public Object getOwner( ) {
+		return this;
+	}
 }
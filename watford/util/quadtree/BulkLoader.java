@@ -0,0 +1,150 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Top down construction of a QuadTree from a known set of objects.
+ * Adding objects one at a time splits each leaf as it fills and re-adds
+ * every member to the new children; here each level is partitioned
+ * once, straight into the quadrants the incremental add would have
+ * chosen (points by centroid, polylines into every quadrant they
+ * cross), and the four quadrants of large subtrees are built in
+ * parallel on the common fork-join pool.
+ *
+ * Nothing is published while building and member parent links are
+ * only set once the whole structure is done.
+ */
+final class BulkLoader extends RecursiveAction {
+	/** Subtrees with fewer objects are built on the current thread. */
+	static final int FORK_THRESHOLD = 8192;
+
+	private final QuadTreeNode node;
+	private final ISpatialObject[] objects;
+	private final int splitSize;
+	private final int maxDepth;
+
+	private BulkLoader(QuadTreeNode node, ISpatialObject[] objects, int splitSize, int maxDepth) {
+		this.node = node;
+		this.objects = objects;
+		this.splitSize = splitSize;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Build an empty, unpublished root around the objects it bounds.
+	 * Objects outside the root are skipped, as add would refuse them.
+	 * @param root Empty root node
+	 * @param objects Objects to index
+	 * @param splitSize Bucket size of the tree
+	 * @param maxDepth Deepest level a leaf may be at, 0 for no limit
+	 * @return Number of objects indexed
+	 */
+	static int load(QuadTreeNode root, ISpatialObject[] objects, int splitSize, int maxDepth) {
+		Rectangle bounds = root.getBounds();
+		ISpatialObject[] inside = new ISpatialObject[objects.length];
+		int count = 0;
+		for(int ii = 0; ii < objects.length; ii++) {
+			if(QuadTreeNode.reaches(bounds, objects[ii]))
+				inside[count++] = objects[ii];
+		}
+
+		if(count != inside.length) {
+			ISpatialObject[] trimmed = new ISpatialObject[count];
+			System.arraycopy(inside, 0, trimmed, 0, count);
+			inside = trimmed;
+		}
+
+		BulkLoader task = new BulkLoader(root, inside, splitSize, maxDepth);
+		if(count < FORK_THRESHOLD)
+			task.compute();
+		else
+			ForkJoinPool.commonPool().invoke(task);
+
+		root.linkMembers();
+		return count;
+	}
+
+	protected void compute( ) {
+		Rectangle bounds = this.node.getBounds();
+
+		// a leaf, or a node too small or too deep to split any further
+		if(this.objects.length <= this.splitSize || bounds.width < 2 || bounds.height < 2
+				|| (this.maxDepth != 0 && this.node.depth() >= this.maxDepth)) {
+			this.node.build(this.objects, null);
+			return;
+		}
+
+		QuadTreeNode[] childNodes = this.node.newChildren();
+		int midX = bounds.x + bounds.width/2;
+		int midY = bounds.y + bounds.height/2;
+
+		// first pass finds the quadrants of each object so the
+		// second can fill exactly sized arrays
+		byte[] quadrants = new byte[this.objects.length];
+		int[] counts = new int[4];
+		for(int ii = 0; ii < this.objects.length; ii++) {
+			ISpatialObject obj = this.objects[ii];
+			int mask = 0;
+
+			if(obj.pointCount() == 1) {
+				int px = obj.getCentroidX(), py = obj.getCentroidY();
+				int quadrant;
+				if(px < midX)
+					quadrant = (py < midY) ? QuadTree.QUADTREENODE_NW : QuadTree.QUADTREENODE_SW;
+				else
+					quadrant = (py < midY) ? QuadTree.QUADTREENODE_NE : QuadTree.QUADTREENODE_SE;
+				mask = 1 << quadrant;
+			} else {
+				for(int jj = 0; jj < childNodes.length; jj++) {
+					if(QuadTreeNode.reaches(childNodes[jj].getBounds(), obj))
+						mask |= 1 << jj;
+				}
+			}
+
+			quadrants[ii] = (byte)mask;
+			for(int jj = 0; jj < counts.length; jj++) {
+				if((mask & (1 << jj)) != 0)
+					counts[jj]++;
+			}
+		}
+
+		ISpatialObject[][] parts = new ISpatialObject[4][];
+		for(int jj = 0; jj < parts.length; jj++)
+			parts[jj] = new ISpatialObject[counts[jj]];
+
+		int[] fill = new int[4];
+		for(int ii = 0; ii < this.objects.length; ii++) {
+			int mask = quadrants[ii];
+			for(int jj = 0; jj < parts.length; jj++) {
+				if((mask & (1 << jj)) != 0)
+					parts[jj][fill[jj]++] = this.objects[ii];
+			}
+		}
+
+		this.node.build(null, childNodes);
+
+		BulkLoader[] tasks = new BulkLoader[4];
+		for(int jj = 0; jj < tasks.length; jj++)
+			tasks[jj] = new BulkLoader(childNodes[jj], parts[jj], this.splitSize, this.maxDepth);
+
+		if(this.objects.length < FORK_THRESHOLD) {
+			for(int jj = 0; jj < tasks.length; jj++)
+				tasks[jj].compute();
+		} else {
+			invokeAll(tasks);
+		}
+	}
+
+	private static final long serialVersionUID = -4030845326618923656L;
+}
@@ -0,0 +1,346 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All-pairs broad phase over QuadTreeNodes, see QuadTree.collidingPairs.
+ * 
+ * A pair is tested the way geometryIntersects(ISpatialObject) would
+ * test it, from both sides, and collides if either side finds the
+ * other; a side is only tried if the object's bounds reach the other's
+ * leaf, as that query would never get there otherwise (AnimatedPoints,
+ * whose bounds are empty, reach nothing and are only ever found).
+ * 
+ * One walk of the tree tests the members of each leaf against each
+ * other. In a loose tree the members of leaves whose loose rectangles
+ * overlap are tested against each other as well, the walk crossing
+ * sibling subtrees which overlap down to their leaves; each pair of
+ * leaves meets at most once that way. Members whose bounds spill out
+ * of their leaf's loose rectangle, which is every PMR object, are
+ * noted on the way and afterwards looked up once each in the leaves
+ * they spill into, from the smallest node holding them (the root in a
+ * loose tree, whose neighbours' margins reach in).
+ * 
+ * Points live in one leaf, so a pair of points neither of which
+ * spills is met once. Pairs which can be met again are settled in a
+ * set the first time they are reported, or found apart by a
+ * whole-geometry test from both sides; a miss on the segment runs of
+ * one leaf says nothing about the next.
+ */
+final class CollidingPairs {
+	private final ICollisionVisitor visitor;
+	private final int categories;
+	private final boolean loose;
+	
+	private ISpatialObject[] objs;
+	private int[][] runs;
+	private boolean[] reach;
+	private boolean[] spill;
+	private int reaching;
+	
+	private final List spillers;
+	private final List spillLeaves;
+	private final Map spilled;
+	
+	private final HashSet settled;
+	private final Pair probe;
+	private int found;
+	private boolean stopped;
+	
+	/**
+	 * Unordered pair of objects, by identity.
+	 */
+	private static final class Pair {
+		ISpatialObject a, b;
+		
+		Pair(ISpatialObject a, ISpatialObject b) {
+			this.a = a;
+			this.b = b;
+		}
+		
+		public int hashCode( ) {
+			return System.identityHashCode(this.a) ^ System.identityHashCode(this.b);
+		}
+		
+		public boolean equals(Object o) {
+			Pair p = (Pair)o;
+			return (p.a == this.a && p.b == this.b) || (p.a == this.b && p.b == this.a);
+		}
+	}
+	
+	CollidingPairs(ICollisionVisitor visitor, int categories, boolean loose) {
+		this.visitor = visitor;
+		this.categories = categories;
+		this.loose = loose;
+		this.objs = new ISpatialObject[32];
+		this.runs = new int[32][];
+		this.reach = new boolean[32];
+		this.spill = new boolean[32];
+		this.spillers = new ArrayList();
+		this.spillLeaves = new ArrayList();
+		this.spilled = new IdentityHashMap();
+		this.settled = new HashSet();
+		this.probe = new Pair(null, null);
+	}
+	
+	/**
+	 * @return Number of pairs reported
+	 */
+	int search(QuadTreeNode root) {
+		pairs(root);
+		
+		for(int ii = 0; ii < this.spillers.size() && !this.stopped; ii++) {
+			ISpatialObject a = (ISpatialObject)this.spillers.get(ii);
+			QuadTreeNode leaf = (QuadTreeNode)this.spillLeaves.get(ii);
+			Rectangle r = a.getBounds();
+			
+			QuadTreeNode start = leaf;
+			if(this.loose) {
+				start = root;
+			} else {
+				while(start.getParentNode() != null && !start.getBounds().contains(r))
+					start = start.getParentNode();
+			}
+			
+			spillInto(start, a, r);
+		}
+		
+		// don't hold on to the members
+		for(int ii = 0; ii < this.objs.length; ii++) {
+			this.objs[ii] = null;
+			this.runs[ii] = null;
+		}
+		
+		return this.found;
+	}
+	
+	private void pairs(QuadTreeNode node) {
+		if(this.stopped || !node.holds(this.categories, 0))
+			return;
+		
+		ISpatialObject[] members = node.getLeafMembers();
+		if(members != null) {
+			this.reaching = 0;
+			int n = gather(node, members, 0, node.getLooseBounds());
+			for(int ii = 0; ii < n; ii++) {
+				ISpatialObject o = this.objs[ii];
+				if(this.spill[ii] && (o.pointCount() == 1 || this.spilled.put(o, o) == null)) {
+					this.spillers.add(o);
+					this.spillLeaves.add(node);
+				}
+			}
+			
+			for(int ii = 0; ii < n && this.reaching > 0 && !this.stopped; ii++) {
+				for(int jj = ii + 1; jj < n && !this.stopped; jj++)
+					test(ii, jj);
+			}
+			return;
+		}
+		
+		QuadTreeNode[] nodes = new QuadTreeNode[4];
+		for(int qq = 0; qq < 4; qq++) {
+			nodes[qq] = node.getChild(qq);
+			if(nodes[qq] == null)
+				return;	// collapsed under us
+		}
+		
+		for(int qq = 0; qq < 4; qq++)
+			pairs(nodes[qq]);
+		
+		if(this.loose) {
+			for(int ii = 0; ii < 4; ii++) {
+				for(int jj = ii + 1; jj < 4; jj++)
+					cross(nodes[ii], nodes[jj]);
+			}
+		}
+	}
+	
+	/**
+	 * Test the members below one node against those below another.
+	 */
+	private void cross(QuadTreeNode n, QuadTreeNode m) {
+		if(this.stopped || !n.getLooseBounds().intersects(m.getLooseBounds()))
+			return;
+		if(!n.holds(this.categories, 0) || !m.holds(this.categories, 0))
+			return;
+		
+		ISpatialObject[] nm = n.getLeafMembers(), mm = null;
+		if(nm == null) {
+			for(int qq = 0; qq < 4; qq++) {
+				QuadTreeNode child = n.getChild(qq);
+				if(child == null)
+					return;
+				cross(child, m);
+			}
+		} else if((mm = m.getLeafMembers()) == null) {
+			for(int qq = 0; qq < 4; qq++) {
+				QuadTreeNode child = m.getChild(qq);
+				if(child == null)
+					return;
+				cross(n, child);
+			}
+		} else {
+			this.reaching = 0;
+			int split = gather(n, nm, 0, m.getLooseBounds());
+			int end = gather(m, mm, split, n.getLooseBounds());
+			for(int ii = 0; ii < split && this.reaching > 0 && !this.stopped; ii++) {
+				for(int jj = split; jj < end && !this.stopped; jj++)
+					test(ii, jj);
+			}
+		}
+	}
+	
+	/**
+	 * Look a spilling member up in the leaves below a node its bounds
+	 * reach, other than its own. Only its own side of each pair is
+	 * tried, the other side's member does the same if it spills back.
+	 */
+	private void spillInto(QuadTreeNode node, ISpatialObject a, Rectangle r) {
+		Rectangle bounds = node.getLooseBounds();
+		if(this.stopped || !(bounds.contains(r) || bounds.intersects(r)))
+			return;
+		if(!node.holds(this.categories, 0))
+			return;
+		
+		ISpatialObject[] members = node.getLeafMembers();
+		if(members == null) {
+			for(int qq = 0; qq < 4; qq++) {
+				QuadTreeNode child = node.getChild(qq);
+				if(child == null)
+					return;
+				spillInto(child, a, r);
+			}
+			return;
+		}
+		
+		// pairs in our own leaves were met there
+		if(a.hasParent(node))
+			return;
+		
+		for(int ii = 0; ii < members.length && !this.stopped; ii++) {
+			ISpatialObject b = members[ii];
+			if(b == a || (b.getCategories() & this.categories) == 0)
+				continue;
+			
+			if(finds(a, b, node.getRuns(b)) && settle(a, b))
+				report(a, b);
+		}
+	}
+	
+	/**
+	 * Copy a leaf's members in our categories, with their runs in the
+	 * leaf and whether they reach the leaf they are to be tested against,
+	 * into the scratch arrays from an offset.
+	 * @param members The leaf's members, from getLeafMembers
+	 * @param target Loose bounds of the leaf the members meet, members
+	 * 	which reach it are counted in this.reaching
+	 * @return Offset past the last member copied
+	 */
+	private int gather(QuadTreeNode leaf, ISpatialObject[] members, int at, Rectangle target) {
+		Rectangle own = leaf.getLooseBounds();
+		
+		if(at + members.length > this.objs.length) {
+			int size = Math.max(this.objs.length * 2, at + members.length);
+			ISpatialObject[] oo = new ISpatialObject[size];
+			int[][] rr = new int[size][];
+			boolean[] bb = new boolean[size], ss = new boolean[size];
+			System.arraycopy(this.objs, 0, oo, 0, at);
+			System.arraycopy(this.runs, 0, rr, 0, at);
+			System.arraycopy(this.reach, 0, bb, 0, at);
+			System.arraycopy(this.spill, 0, ss, 0, at);
+			this.objs = oo;
+			this.runs = rr;
+			this.reach = bb;
+			this.spill = ss;
+		}
+		
+		for(int ii = 0; ii < members.length; ii++) {
+			ISpatialObject o = members[ii];
+			if((o.getCategories() & this.categories) == 0)
+				continue;
+			
+			int x0 = o.getMinX(), y0 = o.getMinY(), x1 = o.getMaxX(), y1 = o.getMaxY();
+			this.objs[at] = o;
+			this.runs[at] = leaf.getRuns(o);
+			this.reach[at] = QuadTreeNode.meets(target, x0, y0, x1, y1);
+			this.spill[at] = x1 > x0 && y1 > y0
+				&& (o.pointCount() != 1 || !QuadTreeNode.encloses(own, x0, y0, x1, y1));
+			if(this.reach[at])
+				this.reaching++;
+			at++;
+		}
+		
+		return at;
+	}
+	
+	private void test(int ii, int jj) {
+		ISpatialObject a = this.objs[ii], b = this.objs[jj];
+		boolean ab = this.reach[ii], ba = this.reach[jj];
+		if(a == b || !(ab || ba))
+			return;
+		
+		boolean multiA = (a.pointCount() != 1), multiB = (b.pointCount() != 1);
+		boolean again = (multiA && multiB)
+			|| (this.loose && (multiA || multiB))
+			|| (!multiA && this.spill[ii]) || (!multiB && this.spill[jj]);
+		if(again) {
+			this.probe.a = a;
+			this.probe.b = b;
+			if(this.settled.contains(this.probe))
+				return;
+		}
+		
+		boolean hit = (ab && finds(a, b, this.runs[jj])) || (ba && finds(b, a, this.runs[ii]));
+		
+		if(again && (hit || (ab && ba && this.runs[ii] == null && this.runs[jj] == null)))
+			this.settled.add(new Pair(a, b));
+		
+		if(hit)
+			report(a, b);
+	}
+	
+	/**
+	 * @return True unless the pair was already settled
+	 */
+	private boolean settle(ISpatialObject a, ISpatialObject b) {
+		this.probe.a = a;
+		this.probe.b = b;
+		if(this.settled.contains(this.probe))
+			return false;
+		this.settled.add(new Pair(a, b));
+		return true;
+	}
+	
+	private void report(ISpatialObject a, ISpatialObject b) {
+		this.found++;
+		if(!this.visitor.collided(a, b))
+			this.stopped = true;
+	}
+	
+	/**
+	 * Would geometryIntersects(a) find b, a member with these runs?
+	 */
+	private static boolean finds(ISpatialObject a, ISpatialObject b, int[] runs) {
+		if(runs != null) {
+			int x0 = a.getMinX(), y0 = a.getMinY();
+			return ((AbstractPolyline)b).intersects(x0, y0, a.getMaxX() - x0, a.getMaxY() - y0, runs);
+		}
+		if(a.pointCount() == 1)
+			return b.intersects(a.getBounds());
+		return b.intersects(a.points());
+	}
+}
@@ -0,0 +1,151 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The queue behind QuadTree's deferred updates, and the commit which
+ * empties it. Nodes only queue points which left their loose bounds (see
+ * QuadTreeNode.objectMoved), once each however often they moved, so the
+ * commit relocates each of them once, from its old leaf, where the walk
+ * up to a bounding node is usually a level or two. Nodes which lost a
+ * member are balanced once each at the end, deepest first.
+ * 
+ * Partitioning the queue top-down from the root instead, then dropping
+ * the points from their old leaves in a second pass, was measured and
+ * is slower: it visits each point's neighbourhood twice, at different
+ * times, where the relocation visits the old and new leaves, usually
+ * neighbours, together.
+ * 
+ * The queue and the nodes to balance are kept between commits.
+ */
+final class DeferredMoves {
+	private static final Comparator DEEPEST_FIRST = new Comparator() {
+		public int compare(Object a, Object b) {
+			return ((QuadTreeNode)b).depth() - ((QuadTreeNode)a).depth();
+		}
+	};
+	
+	private final Map queued;
+	private ISpatialObject[] queue;
+	private int count;
+	
+	/** The queue as it was at the last drain, being committed */
+	private ISpatialObject[] drained;
+	
+	/** Nodes to balance, marked by QuadTreeNode.unbalanced */
+	private QuadTreeNode[] dirty;
+	private int dirtyCount;
+	
+	DeferredMoves( ) {
+		this.queued = new IdentityHashMap();
+		this.queue = new ISpatialObject[64];
+		this.drained = new ISpatialObject[64];
+		this.dirty = new QuadTreeNode[64];
+	}
+	
+	/**
+	 * Queue a moved object, once until the next drain.
+	 */
+	synchronized void add(ISpatialObject obj) {
+		if(this.queued.put(obj, obj) != null)
+			return;
+		if(this.count == this.queue.length)
+			this.queue = Arrays.copyOf(this.queue, this.count * 2);
+		this.queue[this.count++] = obj;
+	}
+	
+	synchronized int size( ) {
+		return this.count;
+	}
+	
+	synchronized void clear( ) {
+		Arrays.fill(this.queue, 0, this.count, null);
+		this.count = 0;
+		this.queued.clear();
+	}
+	
+	/**
+	 * Swap the queue for the empty drained array. Objects queued after
+	 * this, by splits during the commit, start a new queue.
+	 * @return Number of objects now in drained
+	 */
+	private synchronized int drain( ) {
+		ISpatialObject[] objects = this.queue;
+		this.queue = this.drained;
+		this.drained = objects;
+		
+		int n = this.count;
+		this.count = 0;
+		this.queued.clear();
+		return n;
+	}
+	
+	/**
+	 * Reindex everything queued. The caller must hold the tree's write
+	 * lock.
+	 * @return Number of objects processed
+	 */
+	int commit(QuadTree tree) {
+		QuadTreeNode root = tree.getRoot();
+		int processed = 0, n;
+		
+		// a split during the commit can queue objects which
+		// haven't been committed yet, so go until it's drained
+		while((n = drain()) > 0) {
+			processed += n;
+			for(int ii = 0; ii < n; ii++) {
+				ISpatialObject obj = this.drained[ii];
+				this.drained[ii] = null;
+				
+				if(obj.pointCount() == 1) {
+					// removed while queued?
+					QuadTreeNode leaf = (QuadTreeNode)obj.getParent();
+					if(leaf == null)
+						continue;
+					
+					QuadTreeNode node = leaf.relocate(obj);
+					if(node != null)
+						markDirty(node);
+				} else {
+					// does nothing if it was removed while queued
+					root.relocateLine(obj);
+				}
+			}
+		}
+		
+		// children before parents, so a collapse never works on
+		// a detached subtree
+		int k = this.dirtyCount;
+		Arrays.sort(this.dirty, 0, k, DEEPEST_FIRST);
+		for(int ii = 0; ii < k; ii++) {
+			QuadTreeNode node = this.dirty[ii];
+			this.dirty[ii] = null;
+			node.unbalanced = false;
+			node.balance();
+		}
+		this.dirtyCount = 0;
+		
+		return processed;
+	}
+	
+	private void markDirty(QuadTreeNode node) {
+		if(node.unbalanced)
+			return;
+		node.unbalanced = true;
+		if(this.dirtyCount == this.dirty.length)
+			this.dirty = Arrays.copyOf(this.dirty, this.dirtyCount * 2);
+		this.dirty[this.dirtyCount++] = node;
+	}
+}
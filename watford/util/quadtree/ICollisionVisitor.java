@@ -0,0 +1,23 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+/**
+ * Callback for QuadTree.collidingPairs. Receives each colliding pair
+ * once, in no particular order either way round.
+ */
+public interface ICollisionVisitor {
+	/**
+	 * @param a One object of the pair
+	 * @param b The other
+	 * @return True to keep going, false to stop the search here
+	 */
+	public boolean collided(ISpatialObject a, ISpatialObject b);
+}
@@ -15,6 +15,10 @@ package watford.util.quadtree;
  * Quad Tree's intersection routines. Allows for things like
  * pheramone trails, overlays, flying objects, etc.
  * 
+ * Such objects start out in ISpatialObject.CATEGORY_NO_CLIPPING, which
+ * the default collision mask (CATEGORY_SOLID) leaves out; any object
+ * can be given the category instead with setCategories.
+ * 
  * @author Christopher A. Watford
  */
 public interface INoClipping {
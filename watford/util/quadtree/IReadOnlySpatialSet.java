@@ -0,0 +1,152 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * The query half of ISpatialSet, for sets which can't be changed once
+ * built, such as PackedQuadTree snapshots.
+ */
+public interface IReadOnlySpatialSet {
+	/**
+	 * Get the number of objects in the spatial set
+	 * @return Object count
+	 */
+	public int size( );
+	
+	/**
+	 * Get the bounds of the spatial set
+	 * @return Rectangle representing the bounds of the spatial set
+	 */
+	public Rectangle getBounds();
+	
+	/**
+	 * Does the spatial set contain any objects?
+	 * @return Is the set empty?
+	 */
+	public boolean isEmpty( );
+	
+	/**
+	 * Test for intersection of a point and any object inside
+	 * the set.
+	 * @param p Point of intersection
+	 * @return Did we intersect?
+	 */
+	public boolean geometryIntersects(Point p);
+	
+	/**
+	 * Test for intersection of a rectangle and any object inside
+	 * the set.
+	 * @param r Rectangle for intersection
+	 * @return Did we intersect?
+	 */
+	public boolean geometryIntersects(Rectangle r);
+	
+	/**
+	 * Test for intersection of a spatial object and any object
+	 * inside the set.
+	 * @param obj Object to test for intersection
+	 * @return Did we intersect?
+	 */
+	public boolean geometryIntersects(ISpatialObject obj);
+	
+	/**
+	 * Does the set contain, geometrically, the point
+	 * @param p Point to test for containment.
+	 * @return Could we contain this point?
+	 */
+	public boolean geometryContains(Point p);
+	
+	/**
+	 * Does the set contain, geometrically, the rectangle
+	 * @param r Rectangle to test for containment
+	 * @return Could we contain this rectangle?
+	 */
+	public boolean geometryContains(Rectangle r);
+	
+	/**
+	 * Does the set contain, geometrically, the spatial object
+	 * @param obj Spatial object to test for containment
+	 * @return Could we contain this object?
+	 */
+	public boolean geometryContains(ISpatialObject obj);
+	
+	/**
+	 * Test if we currently contain the object
+	 * @param o Object to test for containment
+	 * @return Do we currently contain this object?
+	 */
+	public boolean contains(ISpatialObject o);
+	
+	/**
+	 * Populates the list passed with all the objects inside the
+	 * spatial set.
+	 * 
+	 * Written in tail recursive style to keep memory allocations down.
+	 * @param objects List to fill with objects contained by the set
+	 */
+	public void toList(List objects);
+	
+	/**
+	 * Populate the list with all the objects which fall inside
+	 * the bounds (given the bounds fall inside the set).
+	 * 
+	 * If a null list is passed, objectsInside still runs, but will
+	 * just return the count of objects inside the bounds.
+	 * 
+	 * Written in tail recursive style to keep memory allocations down.
+	 * @param objects List passed in to contain the objects (may be null)
+	 * @param bounds Bounds to return objects inside of
+	 * @return Count of objects found within the bounds
+	 */
+	public int objectsInside(List objects, Rectangle bounds);
+	
+	/**
+	 * Populate the list with all the objects which fall inside
+	 * the bounds (given the bounds fall inside the set) which are of
+	 * a specific class.
+	 * 
+	 * If a null list is passed, objectsInsideLike still runs, but will
+	 * just return the count of objects inside the bounds that match
+	 * the class.
+	 * 
+	 * Written in tail recursive style to keep memory allocations down.
+	 * @param objects List passed in to contain the objects (may be null)
+	 * @param bounds Bounds to return objects inside of
+	 * @param cc Class the objects must be to be included
+	 * @return Count of objects found within the bounds matching the given class
+	 */
+	public int objectsInsideLike(List objects, Rectangle bounds, Class cc);
+	
+	/**
+	 * Hand every object which falls inside the bounds to the visitor,
+	 * stopping as soon as the visitor returns false. Unlike objectsInside
+	 * nothing is collected, and "is there any X here" style queries can
+	 * return at the first hit. Objects stored in several nodes (PMR
+	 * polylines) are visited once per node, as objectsInside lists them.
+	 * @param visitor Callback for each object found
+	 * @param bounds Bounds to visit objects inside of
+	 * @return False if the visitor stopped the query, true otherwise
+	 */
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle bounds);
+	
+	/**
+	 * visitInside restricted to objects of a specific class, as
+	 * objectsInsideLike.
+	 * @param visitor Callback for each object found
+	 * @param bounds Bounds to visit objects inside of
+	 * @param cc Class the objects must be to be visited
+	 * @return False if the visitor stopped the query, true otherwise
+	 */
+	public boolean visitInsideLike(ISpatialVisitor visitor, Rectangle bounds, Class cc);
+}
@@ -17,10 +17,32 @@ import java.awt.geom.GeneralPath;
 import java.util.Collection;
 
 public interface ISpatialObject {
+	/** Category of ordinary objects. */
+	public final static int CATEGORY_DEFAULT = 1;
+	/** Category of INoClipping objects. */
+	public final static int CATEGORY_NO_CLIPPING = 1 << 31;
+	/** Mask matching every category. */
+	public final static int CATEGORY_ALL = ~0;
+	/** Mask the collision routines use by default, everything which clips. */
+	public final static int CATEGORY_SOLID = ~CATEGORY_NO_CLIPPING;
+	
 	public void translate(Point p);
 	public void translate(int dx, int dy);
 	
 	public abstract Rectangle getBounds();
+	
+	/**
+	 * getBounds and centroid as plain ints, for the tree's hot paths,
+	 * which must not allocate. They must agree with getBounds (max is
+	 * x + width, as for a Rectangle) and centroid, so a subclass which
+	 * overrides one of those overrides these too.
+	 */
+	public int getMinX();
+	public int getMinY();
+	public int getMaxX();
+	public int getMaxY();
+	public int getCentroidX();
+	public int getCentroidY();
 
 	public boolean containedFullyBy(Rectangle rect);
 	public boolean containedPartiallyBy(Rectangle rect);
@@ -28,6 +50,15 @@ public interface ISpatialObject {
 	public boolean intersects(Rectangle rect);
 	public boolean intersects(Point pnt);
 	
+	/**
+	 * Categories the object belongs to, as bits. Queries given a
+	 * category mask only see objects sharing a bit with it, and skip
+	 * whole subtrees which hold none. Indexed objects must be removed
+	 * and re-added to change category.
+	 * @return Category bits, never 0
+	 */
+	public int getCategories();
+	
 	public int pointCount();
 	public Point centroid();
 	public GeneralPath points();
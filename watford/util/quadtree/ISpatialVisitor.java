@@ -0,0 +1,23 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+/**
+ * Callback for IReadOnlySpatialSet.visitInside. Receives each object
+ * found by the query as it is found, and decides whether the query goes
+ * on.
+ */
+public interface ISpatialVisitor {
+	/**
+	 * @param obj Object found by the query
+	 * @return True to keep going, false to stop the query here
+	 */
+	public boolean visit(ISpatialObject obj);
+}
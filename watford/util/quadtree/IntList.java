@@ -0,0 +1,62 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+/**
+ * Growable list of ints, used to collect PointQuadTree handles without
+ * boxing. Clearing keeps the backing array so a list reused between
+ * queries stops allocating once it has grown to fit.
+ */
+public class IntList {
+	private int[] data;
+	private int size;
+
+	public IntList( ) {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		this.data = new int[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	public void add(int value) {
+		if(this.size == this.data.length) {
+			int[] grown = new int[this.data.length * 2];
+			System.arraycopy(this.data, 0, grown, 0, this.size);
+			this.data = grown;
+		}
+		this.data[this.size++] = value;
+	}
+
+	public int get(int index) {
+		if(index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		return this.data[index];
+	}
+
+	public int size( ) {
+		return this.size;
+	}
+
+	public boolean isEmpty( ) {
+		return this.size == 0;
+	}
+
+	public void clear( ) {
+		this.size = 0;
+	}
+
+	public int[] toArray( ) {
+		int[] copy = new int[this.size];
+		System.arraycopy(this.data, 0, copy, 0, this.size);
+		return copy;
+	}
+}
@@ -0,0 +1,287 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.GeneralPath;
+
+/** A point which moves in a straight line on its own, for the kinetic
+ * mode of QuadTree (see QuadTree.setVelocity). Its position is where it
+ * was last placed plus its velocity times the time since, on the clock
+ * of the tree which set it moving, so nothing has to be done to keep it
+ * moving; the tree only hears of it when it leaves its leaf. Positions
+ * are whole pixels, the exact position rounded down.
+ * 
+ * translate and warpTo place the point again at the current time and
+ * keep its velocity.
+ */
+public class KineticPoint extends AbstractKineticObject {
+	/** Time past the exact crossing at which a certificate fails, so the
+	 * rounded position is outside by then */
+	private static final double EXIT_SLACK = 1e-7;
+	
+	private double x0, y0, t0;
+	private double vx, vy;
+	private QuadTree clock;
+	
+	/** Certificate bookkeeping, see KineticQueue */
+	int stamp;
+	boolean queued;
+	
+	public KineticPoint(int x, int y) {
+		this.x0 = x;
+		this.y0 = y;
+	}
+	
+	public KineticPoint(Point p) {
+		this(p.x, p.y);
+	}
+	
+	public int getX( ) {
+		return (this.clock == null) ? (int)Math.floor(this.x0) : getX(this.clock.getTime());
+	}
+	
+	public int getY( ) {
+		return (this.clock == null) ? (int)Math.floor(this.y0) : getY(this.clock.getTime());
+	}
+	
+	/**
+	 * Where the point will be at a time on its tree's clock, if it
+	 * keeps its velocity. A moving point never leaves the tree: the
+	 * certificate stopping it at the edge fails a moment after the
+	 * crossing, and until then it is held on the last pixel inside.
+	 * @param time Time, getTime of the tree or later
+	 * @return Horizontal position then
+	 */
+	public int getX(double time) {
+		if(this.clock == null)
+			return getX();
+		
+		int x = (int)Math.floor(this.x0 + this.vx * (time - this.t0));
+		if(this.vx == 0)
+			return x;
+		Rectangle b = this.clock.getBounds();
+		return Math.max(b.x, Math.min(x, b.x + b.width - 1));
+	}
+	
+	/**
+	 * @see #getX(double)
+	 */
+	public int getY(double time) {
+		if(this.clock == null)
+			return getY();
+		
+		int y = (int)Math.floor(this.y0 + this.vy * (time - this.t0));
+		if(this.vy == 0)
+			return y;
+		Rectangle b = this.clock.getBounds();
+		return Math.max(b.y, Math.min(y, b.y + b.height - 1));
+	}
+	
+	/**
+	 * @return Horizontal velocity, pixels per unit of tree time
+	 */
+	public double getVelocityX( ) {
+		return this.vx;
+	}
+	
+	/**
+	 * @return Vertical velocity, pixels per unit of tree time
+	 */
+	public double getVelocityY( ) {
+		return this.vy;
+	}
+	
+	public boolean isMoving( ) {
+		return this.vx != 0 || this.vy != 0;
+	}
+	
+	private double elapsed( ) {
+		return (this.clock == null) ? 0 : this.clock.getTime() - this.t0;
+	}
+	
+	/**
+	 * Start a new leg from the exact current position. Called by
+	 * QuadTree.setVelocity under the tree's write lock.
+	 */
+	void setMotion(QuadTree clock, double vx, double vy) {
+		double dt = elapsed();
+		this.x0 += this.vx * dt;
+		this.y0 += this.vy * dt;
+		this.clock = clock;
+		this.t0 = clock.getTime();
+		this.vx = vx;
+		this.vy = vy;
+	}
+	
+	/**
+	 * Stop at the nearest pixel inside a rectangle, for points reaching
+	 * the edge of their tree.
+	 */
+	void stopInside(Rectangle r) {
+		int x = Math.max(r.x, Math.min(getX(), r.x + r.width - 1));
+		int y = Math.max(r.y, Math.min(getY(), r.y + r.height - 1));
+		place(x, y);
+		this.vx = 0;
+		this.vy = 0;
+	}
+	
+	QuadTree getClock( ) {
+		return this.clock;
+	}
+	
+	/**
+	 * The certificate: when the rounded position first lies outside a
+	 * rectangle, on the tree's clock.
+	 * @return Time of leaving, infinite for a point at rest
+	 */
+	double exitTime(Rectangle r) {
+		double t = Double.POSITIVE_INFINITY;
+		
+		if(this.vx > 0)
+			t = Math.min(t, this.t0 + (r.x + r.width - this.x0 + EXIT_SLACK) / this.vx);
+		else if(this.vx < 0)
+			t = Math.min(t, this.t0 + (r.x - EXIT_SLACK - this.x0) / this.vx);
+		
+		if(this.vy > 0)
+			t = Math.min(t, this.t0 + (r.y + r.height - this.y0 + EXIT_SLACK) / this.vy);
+		else if(this.vy < 0)
+			t = Math.min(t, this.t0 + (r.y - EXIT_SLACK - this.y0) / this.vy);
+		
+		return t;
+	}
+	
+	/**
+	 * Will the point be inside a rectangle at some time in [from, to],
+	 * if it keeps its velocity? Its tree stops it at the edge, so from
+	 * the time it would leave the tree it stays on the last pixel inside
+	 * (getX then), as QuadTree.advanceTo leaves it.
+	 */
+	boolean passesThrough(Rectangle r, double from, double to) {
+		if(this.clock == null)
+			return r.contains(getX(), getY());
+		
+		double edge = exitTime(this.clock.getBounds());
+		if(from < edge && crosses(r, from, Math.min(to, edge)))
+			return true;
+		if(to < edge)
+			return false;
+		return r.contains(getX(edge), getY(edge));
+	}
+	
+	/**
+	 * Does the straight line of the current leg enter a rectangle at
+	 * some time in [from, to]?
+	 */
+	private boolean crosses(Rectangle r, double from, double to) {
+		// clip the window to the times the exact position lies inside
+		double lo = from, hi = to;
+		if(this.vx != 0) {
+			double a = this.t0 + (r.x - this.x0) / this.vx;
+			double b = this.t0 + (r.x + r.width - this.x0) / this.vx;
+			lo = Math.max(lo, Math.min(a, b));
+			hi = Math.min(hi, Math.max(a, b));
+		}
+		if(this.vy != 0) {
+			double a = this.t0 + (r.y - this.y0) / this.vy;
+			double b = this.t0 + (r.y + r.height - this.y0) / this.vy;
+			lo = Math.max(lo, Math.min(a, b));
+			hi = Math.min(hi, Math.max(a, b));
+		}
+		if(lo > hi)
+			return false;
+		
+		// what is left may only touch the far edge, test its middle
+		double t = (lo + hi) / 2;
+		return r.contains(getX(t), getY(t));
+	}
+	
+	private void place(int x, int y) {
+		this.x0 = x;
+		this.y0 = y;
+		this.t0 = (this.clock == null) ? 0 : this.clock.getTime();
+	}
+	
+	public void translate(Point p) {
+		place(p.x, p.y);
+		this.notifyMoved();
+	}
+	
+	public void translate(int dx, int dy) {
+		place(getX() + dx, getY() + dy);
+		this.notifyMoved();
+	}
+	
+	public void warpTo(int x, int y) {
+		place(x, y);
+		this.notifyMoved();
+	}
+	
+	public boolean intersects(GeneralPath path) {
+		return path.intersects(getX(), getY(), 1, 1);
+	}
+	
+	public boolean intersects(Rectangle rect) {
+		return rect.contains(getX(), getY());
+	}
+	
+	public boolean intersects(Point pnt) {
+		return getX() == pnt.x && getY() == pnt.y;
+	}
+	
+	public boolean containedFullyBy(Rectangle rect) {
+		return rect.contains(getX(), getY());
+	}
+	
+	public boolean containedPartiallyBy(Rectangle rect) {
+		return rect.contains(getX(), getY());
+	}
+	
+	public Rectangle getBounds( ) {
+		return new Rectangle(getX(), getY(), 0, 0);
+	}
+	
+	public int getMinX( ) {
+		return getX();
+	}
+	
+	public int getMinY( ) {
+		return getY();
+	}
+	
+	public int getMaxX( ) {
+		return getX();
+	}
+	
+	public int getMaxY( ) {
+		return getY();
+	}
+	
+	public int getCentroidX( ) {
+		return getX();
+	}
+	
+	public int getCentroidY( ) {
+		return getY();
+	}
+	
+	public int pointCount( ) {
+		return 1;
+	}
+	
+	public Point centroid( ) {
+		return new Point(getX(), getY());
+	}
+	
+	public GeneralPath points( ) {
+		return null;
+	}
+}
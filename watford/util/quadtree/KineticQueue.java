@@ -0,0 +1,175 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+/**
+ * Certificate failure times of moving KineticPoints, soonest first, in a
+ * binary min-heap kept in parallel arrays like NearestSearch's. A point
+ * holds at most one live certificate: rescheduling stamps the point
+ * again and the old entry is dropped when it comes up, or when stale
+ * entries outnumber live ones and the heap is rebuilt.
+ * The caller must hold the tree's write lock.
+ */
+final class KineticQueue {
+	private double[] times;
+	private KineticPoint[] points;
+	private int[] stamps;
+	private int count;
+	private int stale;
+	private double polled;
+	
+	KineticQueue( ) {
+		this.times = new double[64];
+		this.points = new KineticPoint[64];
+		this.stamps = new int[64];
+	}
+	
+	/**
+	 * Schedule a point's certificate, replacing any it had.
+	 */
+	void add(KineticPoint p, double time) {
+		if(p.queued)
+			this.stale++;
+		p.stamp++;
+		p.queued = true;
+		
+		if(this.stale > 64 && this.stale > this.count - this.stale)
+			compact();
+		push(time, p, p.stamp);
+	}
+	
+	/**
+	 * Next live certificate failing no later than a time.
+	 * @return The point, or null if none fails by then
+	 */
+	KineticPoint poll(double until) {
+		while(this.count > 0 && this.times[0] <= until) {
+			double t = this.times[0];
+			KineticPoint p = this.points[0];
+			int stamp = this.stamps[0];
+			pop();
+			
+			if(stamp != p.stamp) {
+				this.stale--;
+				continue;
+			}
+			
+			p.queued = false;
+			this.polled = t;
+			return p;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return Failure time of the certificate poll last returned
+	 */
+	double polledTime( ) {
+		return this.polled;
+	}
+	
+	int size( ) {
+		return this.count - this.stale;
+	}
+	
+	void clear( ) {
+		for(int ii = 0; ii < this.count; ii++) {
+			if(this.stamps[ii] == this.points[ii].stamp)
+				this.points[ii].queued = false;
+			this.points[ii] = null;
+		}
+		this.count = 0;
+		this.stale = 0;
+	}
+	
+	/**
+	 * Drop the stale entries and heapify what is left.
+	 */
+	private void compact( ) {
+		int n = 0;
+		for(int ii = 0; ii < this.count; ii++) {
+			if(this.stamps[ii] == this.points[ii].stamp) {
+				this.times[n] = this.times[ii];
+				this.points[n] = this.points[ii];
+				this.stamps[n] = this.stamps[ii];
+				n++;
+			}
+		}
+		for(int ii = n; ii < this.count; ii++)
+			this.points[ii] = null;
+		this.count = n;
+		this.stale = 0;
+		
+		for(int ii = n / 2 - 1; ii >= 0; ii--)
+			siftDown(ii);
+	}
+	
+	private void push(double t, KineticPoint p, int stamp) {
+		if(this.count == this.times.length) {
+			double[] tt = new double[this.count * 2];
+			KineticPoint[] pp = new KineticPoint[this.count * 2];
+			int[] ss = new int[this.count * 2];
+			System.arraycopy(this.times, 0, tt, 0, this.count);
+			System.arraycopy(this.points, 0, pp, 0, this.count);
+			System.arraycopy(this.stamps, 0, ss, 0, this.count);
+			this.times = tt;
+			this.points = pp;
+			this.stamps = ss;
+		}
+		
+		// sift up
+		int ii = this.count++;
+		while(ii > 0) {
+			int up = (ii - 1) / 2;
+			if(this.times[up] <= t)
+				break;
+			this.times[ii] = this.times[up];
+			this.points[ii] = this.points[up];
+			this.stamps[ii] = this.stamps[up];
+			ii = up;
+		}
+		this.times[ii] = t;
+		this.points[ii] = p;
+		this.stamps[ii] = stamp;
+	}
+	
+	private void pop( ) {
+		int n = --this.count;
+		this.times[0] = this.times[n];
+		this.points[0] = this.points[n];
+		this.stamps[0] = this.stamps[n];
+		this.points[n] = null;
+		if(n > 0)
+			siftDown(0);
+	}
+	
+	private void siftDown(int ii) {
+		double t = this.times[ii];
+		KineticPoint p = this.points[ii];
+		int stamp = this.stamps[ii];
+		
+		while(true) {
+			int cc = 2*ii + 1;
+			if(cc >= this.count)
+				break;
+			if(cc + 1 < this.count && this.times[cc + 1] < this.times[cc])
+				cc++;
+			if(this.times[cc] >= t)
+				break;
+			this.times[ii] = this.times[cc];
+			this.points[ii] = this.points[cc];
+			this.stamps[ii] = this.stamps[cc];
+			ii = cc;
+		}
+		this.times[ii] = t;
+		this.points[ii] = p;
+		this.stamps[ii] = stamp;
+	}
+}
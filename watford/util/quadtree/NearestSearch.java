@@ -0,0 +1,238 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Best-first k-nearest-neighbour search over QuadTreeNodes, see
+ * QuadTree.nearest. Nodes wait in a binary min-heap keyed on their
+ * distance from the query point, the best k objects so far in a max-heap,
+ * both kept in parallel arrays so visiting a node allocates nothing.
+ * Search stops once the nearest unvisited node is further away than the
+ * k'th best object.
+ */
+final class NearestSearch {
+	private double[] nodeKeys;
+	private QuadTreeNode[] nodes;
+	private int nodeCount;
+	
+	private double[] bestKeys;
+	private ISpatialObject[] best;
+	private int bestCount;
+	
+	NearestSearch(int k) {
+		this.nodeKeys = new double[64];
+		this.nodes = new QuadTreeNode[64];
+		this.bestKeys = new double[k];
+		this.best = new ISpatialObject[k];
+	}
+	
+	/**
+	 * @param objects List to receive the objects, nearest first (may be null)
+	 * @return Number of objects found, at most k
+	 */
+	int search(QuadTreeNode root, List objects, Point p, Class cc) {
+		int k = this.best.length;
+		int classBit = (cc == null) ? 0 : QuadTreeNode.classBit(cc);
+		push(root, distanceSq(root.getLooseBounds(), p.x, p.y));
+		
+		while(this.nodeCount > 0) {
+			double d = this.nodeKeys[0];
+			QuadTreeNode node = popNode();
+			
+			if(this.bestCount == k && d > this.bestKeys[0])
+				break;
+			
+			ISpatialObject[] members = node.getLeafMembers();
+			if(members != null) {
+				for(int ii = 0; ii < members.length; ii++) {
+					ISpatialObject o = members[ii];
+					
+					if((o.getCategories() & ISpatialObject.CATEGORY_SOLID) == 0)
+						continue;
+					if(cc != null && o.getClass() != cc)
+						continue;
+					
+					offer(o, distanceSq(o, p.x, p.y));
+				}
+			} else {
+				for(int qq = 0; qq < 4; qq++) {
+					QuadTreeNode child = node.getChild(qq);
+					if(child == null)
+						break;	// collapsed under us
+					if(!child.holds(ISpatialObject.CATEGORY_SOLID, classBit))
+						continue;
+					
+					double cd = distanceSq(child.getLooseBounds(), p.x, p.y);
+					if(this.bestCount < k || cd <= this.bestKeys[0])
+						push(child, cd);
+				}
+			}
+		}
+		
+		// drain the max-heap from the back to get nearest first
+		int found = this.bestCount;
+		if(objects != null) {
+			int at = objects.size();
+			for(int ii = 0; ii < found; ii++)
+				objects.add(null);
+			for(int ii = found - 1; ii >= 0; ii--)
+				objects.set(at + ii, popBest());
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Exact distance for points and AbstractPolylines, distance to the
+	 * bounding box for anything else.
+	 */
+	static double distanceSq(ISpatialObject o, int px, int py) {
+		if(o.pointCount() == 1) {
+			double dx = px - o.getCentroidX(), dy = py - o.getCentroidY();
+			return dx*dx + dy*dy;
+		}
+		
+		if(o instanceof AbstractPolyline)
+			return ((AbstractPolyline)o).distanceSq(px, py);
+		
+		return distanceSq(o.getMinX(), o.getMinY(), o.getMaxX(), o.getMaxY(), px, py);
+	}
+	
+	static double distanceSq(Rectangle r, int px, int py) {
+		return distanceSq(r.x, r.y, r.x + r.width, r.y + r.height, px, py);
+	}
+	
+	static double distanceSq(int x0, int y0, int x1, int y1, int px, int py) {
+		double dx = 0, dy = 0;
+		if(px < x0)
+			dx = x0 - px;
+		else if(px > x1)
+			dx = px - x1;
+		if(py < y0)
+			dy = y0 - py;
+		else if(py > y1)
+			dy = py - y1;
+		return dx*dx + dy*dy;
+	}
+	
+	private void offer(ISpatialObject o, double d) {
+		int k = this.best.length;
+		if(this.bestCount == k && d >= this.bestKeys[0])
+			return;
+		
+		// PMR objects show up once per leaf they cross
+		for(int ii = 0; ii < this.bestCount; ii++) {
+			if(this.best[ii] == o)
+				return;
+		}
+		
+		if(this.bestCount == k)
+			popBest();
+		
+		// sift up (max-heap)
+		int ii = this.bestCount++;
+		while(ii > 0) {
+			int up = (ii - 1) / 2;
+			if(this.bestKeys[up] >= d)
+				break;
+			this.bestKeys[ii] = this.bestKeys[up];
+			this.best[ii] = this.best[up];
+			ii = up;
+		}
+		this.bestKeys[ii] = d;
+		this.best[ii] = o;
+	}
+	
+	private ISpatialObject popBest( ) {
+		ISpatialObject top = this.best[0];
+		int n = --this.bestCount;
+		double d = this.bestKeys[n];
+		ISpatialObject o = this.best[n];
+		this.best[n] = null;
+		
+		// sift down (max-heap)
+		int ii = 0;
+		while(true) {
+			int cc = 2*ii + 1;
+			if(cc >= n)
+				break;
+			if(cc + 1 < n && this.bestKeys[cc + 1] > this.bestKeys[cc])
+				cc++;
+			if(this.bestKeys[cc] <= d)
+				break;
+			this.bestKeys[ii] = this.bestKeys[cc];
+			this.best[ii] = this.best[cc];
+			ii = cc;
+		}
+		if(n > 0) {
+			this.bestKeys[ii] = d;
+			this.best[ii] = o;
+		}
+		
+		return top;
+	}
+	
+	private void push(QuadTreeNode node, double d) {
+		if(this.nodeCount == this.nodes.length) {
+			double[] keys = new double[this.nodeCount * 2];
+			QuadTreeNode[] grown = new QuadTreeNode[this.nodeCount * 2];
+			System.arraycopy(this.nodeKeys, 0, keys, 0, this.nodeCount);
+			System.arraycopy(this.nodes, 0, grown, 0, this.nodeCount);
+			this.nodeKeys = keys;
+			this.nodes = grown;
+		}
+		
+		// sift up (min-heap)
+		int ii = this.nodeCount++;
+		while(ii > 0) {
+			int up = (ii - 1) / 2;
+			if(this.nodeKeys[up] <= d)
+				break;
+			this.nodeKeys[ii] = this.nodeKeys[up];
+			this.nodes[ii] = this.nodes[up];
+			ii = up;
+		}
+		this.nodeKeys[ii] = d;
+		this.nodes[ii] = node;
+	}
+	
+	private QuadTreeNode popNode( ) {
+		QuadTreeNode top = this.nodes[0];
+		int n = --this.nodeCount;
+		double d = this.nodeKeys[n];
+		QuadTreeNode node = this.nodes[n];
+		this.nodes[n] = null;
+		
+		// sift down (min-heap)
+		int ii = 0;
+		while(true) {
+			int cc = 2*ii + 1;
+			if(cc >= n)
+				break;
+			if(cc + 1 < n && this.nodeKeys[cc + 1] < this.nodeKeys[cc])
+				cc++;
+			if(this.nodeKeys[cc] >= d)
+				break;
+			this.nodeKeys[ii] = this.nodeKeys[cc];
+			this.nodes[ii] = this.nodes[cc];
+			ii = cc;
+		}
+		if(n > 0) {
+			this.nodeKeys[ii] = d;
+			this.nodes[ii] = node;
+		}
+		
+		return top;
+	}
+}
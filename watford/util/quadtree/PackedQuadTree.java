@@ -0,0 +1,528 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Read-only, off-heap snapshot of a QuadTree for large static worlds.
+ * 
+ * A QuadTree full of walls and terrain is mostly QuadTreeNodes, their
+ * Rectangles and leaf ArrayLists, all of which the collector has to walk
+ * on every full GC. pack copies the structure of a finished tree into a
+ * single direct ByteBuffer (or a memory mapped file), leaving only the
+ * objects themselves, and one array referencing them, on the heap:
+ * 
+ *  header   magic, node count, member count, object count, tree bounds,
+ *           flags (PACKED_LOOSE when the tree was loose)
+ *  nodes    x, y, width, height, first child, first member, member count
+ *           (children are stored four in a row, in QUADTREENODE_ order,
+ *           first child is -1 for a leaf; the rectangle is the node's
+ *           loose bounds, its cell unless the tree was loose)
+ *  members  object ids, indexes into getObjects()
+ * 
+ * All IReadOnlySpatialSet queries work against the packed form and give
+ * the same answers as the source tree at the time it was packed; a
+ * polyline is still reported once per leaf it crosses, exactly as
+ * QuadTreeNode does. The set is static: it has no add, remove or clear,
+ * and objects moving afterwards are not tracked.
+ * 
+ * A mapped file can be reopened later with open, given the objects in
+ * getObjects() order.
+ */
+public class PackedQuadTree implements IReadOnlySpatialSet {
+	private static final int MAGIC = 0x4b515432; // "KQT2"
+	private static final int HEADER_BYTES = 36;
+	
+	private static final int PACKED_LOOSE = 1;
+	
+	private static final int NODE_INTS = 7;
+	private static final int NODE_BYTES = NODE_INTS * 4;
+	
+	private static final int N_X = 0, N_Y = 4, N_W = 8, N_H = 12;
+	private static final int N_CHILD = 16, N_START = 20, N_COUNT = 24;
+	
+	private final ByteBuffer buf;
+	private final ISpatialObject[] objects;
+	private final Rectangle bounds;
+	private final int nodeCount;
+	private final int memberCount;
+	private final int membersAt;
+	private final boolean loose;
+	
+	private PackedQuadTree(ByteBuffer buf, ISpatialObject[] objects) {
+		this.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if(buf.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Not a packed quad tree");
+		
+		this.nodeCount = buf.getInt(4);
+		this.memberCount = buf.getInt(8);
+		if(buf.getInt(12) != objects.length)
+			throw new IllegalArgumentException("Packed tree expects " + buf.getInt(12)
+					+ " objects, " + objects.length + " given");
+		
+		this.objects = objects;
+		this.bounds = new Rectangle(buf.getInt(16), buf.getInt(20), buf.getInt(24), buf.getInt(28));
+		this.membersAt = HEADER_BYTES + this.nodeCount * NODE_BYTES;
+		
+		this.loose = (buf.getInt(32) & PACKED_LOOSE) != 0;
+	}
+	
+	/**
+	 * Pack a tree into a direct (off-heap) buffer.
+	 * @param tree Tree to snapshot
+	 * @return Packed copy of the tree
+	 */
+	public static PackedQuadTree pack(QuadTree tree) {
+		synchronized(tree.writeLock()) {
+			Layout layout = new Layout(tree);
+			ByteBuffer buf = ByteBuffer.allocateDirect(layout.byteSize());
+			layout.write(buf.order(ByteOrder.LITTLE_ENDIAN));
+			return new PackedQuadTree(buf, layout.objects());
+		}
+	}
+	
+	/**
+	 * Pack a tree into a memory mapped file, replacing the file.
+	 * @param tree Tree to snapshot
+	 * @param file File to hold the packed tree
+	 * @return Packed copy of the tree, backed by the file
+	 * @throws IOException If the file can not be written or mapped
+	 */
+	public static PackedQuadTree pack(QuadTree tree, File file) throws IOException {
+		synchronized(tree.writeLock()) {
+			Layout layout = new Layout(tree);
+			int size = layout.byteSize();
+			
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(size);
+				ByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+				layout.write(buf.order(ByteOrder.LITTLE_ENDIAN));
+				return new PackedQuadTree(buf, layout.objects());
+			} finally {
+				raf.close();
+			}
+		}
+	}
+	
+	/**
+	 * Map a previously packed tree back in.
+	 * @param file File written by pack(QuadTree, File)
+	 * @param objects The objects, in the order getObjects() returned them
+	 * @return Packed tree backed by the file
+	 * @throws IOException If the file can not be mapped
+	 */
+	public static PackedQuadTree open(File file, ISpatialObject[] objects) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			ByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			return new PackedQuadTree(buf, objects);
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * The distinct objects in the tree, indexed by their packed id.
+	 * @return Object table (not a copy)
+	 */
+	public ISpatialObject[] getObjects( ) {
+		return this.objects;
+	}
+	
+	public int size( ) {
+		return this.memberCount;
+	}
+	
+	public Rectangle getBounds( ) {
+		return this.bounds;
+	}
+	
+	public boolean isEmpty( ) {
+		return this.memberCount == 0;
+	}
+	
+	public boolean geometryContains(Point p) {
+		return this.bounds.contains(p);
+	}
+	
+	public boolean geometryContains(Rectangle r) {
+		return this.bounds.contains(r);
+	}
+	
+	public boolean geometryContains(ISpatialObject obj) {
+		return QuadTreeNode.encloses(this.bounds, obj.getMinX(), obj.getMinY(), obj.getMaxX(), obj.getMaxY());
+	}
+	
+	/**
+	 * Looks only in the leaves the object's bounds reach, so an object
+	 * which moved after packing may not be found.
+	 */
+	public boolean contains(ISpatialObject o) {
+		return contains(0, o, o.getMinX(), o.getMinY(), o.getMaxX(), o.getMaxY());
+	}
+	
+	/**
+	 * Is the object in a leaf below a node meeting its bounds? Bounds
+	 * are taken as closed, so points and lines lying along an edge,
+	 * whose bounds are empty, still find the leaves holding them.
+	 */
+	private boolean contains(int node, ISpatialObject o, int x0, int y0, int x1, int y1) {
+		int x = nodeInt(node, N_X), y = nodeInt(node, N_Y);
+		if(x1 < x || y1 < y || x0 >= x + nodeInt(node, N_W) || y0 >= y + nodeInt(node, N_H))
+			return false;
+		
+		int first = child(node);
+		if(first >= 0) {
+			for(int qq = 0; qq < 4; qq++) {
+				if(contains(first + qq, o, x0, y0, x1, y1))
+					return true;
+			}
+			return false;
+		}
+		
+		int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+		for(int ii = start; ii < end; ii++) {
+			if(this.objects[member(ii)] == o)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	public void toList(List objects) {
+		if(objects == null)
+			return;
+		
+		for(int ii = 0; ii < this.memberCount; ii++)
+			objects.add(this.objects[member(ii)]);
+	}
+	
+	public int objectsInside(List objects, Rectangle rect) {
+		return objectsInside(0, objects, rect, null);
+	}
+	
+	public int objectsInsideLike(List objects, Rectangle rect, Class cc) {
+		return objectsInside(0, objects, rect, cc);
+	}
+	
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle rect) {
+		return visit(0, visitor, rect, null);
+	}
+	
+	public boolean visitInsideLike(ISpatialVisitor visitor, Rectangle rect, Class cc) {
+		return visit(0, visitor, rect, cc);
+	}
+	
+	public boolean geometryIntersects(Point p) {
+		if(!this.bounds.contains(p))
+			return false;
+		
+		if(this.loose)
+			return intersectsLoose(0, p);
+		
+		int node = 0;
+		int first;
+		while((first = child(node)) >= 0) {
+			int midX = nodeInt(node, N_X) + nodeInt(node, N_W)/2;
+			int midY = nodeInt(node, N_Y) + nodeInt(node, N_H)/2;
+			if(p.x < midX)
+				node = first + ((p.y < midY) ? QuadTree.QUADTREENODE_NW : QuadTree.QUADTREENODE_SW);
+			else
+				node = first + ((p.y < midY) ? QuadTree.QUADTREENODE_NE : QuadTree.QUADTREENODE_SE);
+		}
+		
+		int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+		for(int ii = start; ii < end; ii++) {
+			ISpatialObject obj = this.objects[member(ii)];
+			if((obj.getCategories() & ISpatialObject.CATEGORY_SOLID) != 0 && obj.intersects(p))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Point test for a loose snapshot, looking in every node whose
+	 * rectangle holds the point rather than the one quadrant.
+	 */
+	private boolean intersectsLoose(int node, Point p) {
+		int x = nodeInt(node, N_X), y = nodeInt(node, N_Y);
+		if(p.x < x || p.y < y || p.x >= x + nodeInt(node, N_W) || p.y >= y + nodeInt(node, N_H))
+			return false;
+		
+		int first = child(node);
+		if(first >= 0) {
+			for(int qq = 0; qq < 4; qq++) {
+				if(intersectsLoose(first + qq, p))
+					return true;
+			}
+			return false;
+		}
+		
+		int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+		for(int ii = start; ii < end; ii++) {
+			ISpatialObject obj = this.objects[member(ii)];
+			if((obj.getCategories() & ISpatialObject.CATEGORY_SOLID) != 0 && obj.intersects(p))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	public boolean geometryIntersects(Rectangle r) {
+		return intersects(0, r.x, r.y, r.x + r.width, r.y + r.height, r, null);
+	}
+	
+	public boolean geometryIntersects(ISpatialObject obj) {
+		int x0 = obj.getMinX(), y0 = obj.getMinY(), x1 = obj.getMaxX(), y1 = obj.getMaxY();
+		if(!overlaps(0, x0, y0, x1, y1))
+			return false;
+		
+		// as QuadTreeNode, only one point objects with an extent get here
+		// needing a Rectangle
+		Rectangle area = (obj.pointCount() == 1) ? new Rectangle(x0, y0, x1 - x0, y1 - y0) : null;
+		return intersects(0, x0, y0, x1, y1, area, obj);
+	}
+	
+	private int objectsInside(int node, List objects, Rectangle rect, Class cl) {
+		if(!overlaps(node, rect))
+			return 0;
+		
+		int first = child(node);
+		if(first < 0) {
+			int cnt = 0;
+			int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+			for(int ii = start; ii < end; ii++) {
+				ISpatialObject o = this.objects[member(ii)];
+				if((cl == null || o.getClass() == cl) && o.containedPartiallyBy(rect)) {
+					if(objects != null)
+						objects.add(o);
+					cnt++;
+				}
+			}
+			return cnt;
+		}
+		
+		int cnt = 0;
+		for(int ii = 0; ii < 4; ii++)
+			cnt += objectsInside(first + ii, objects, rect, cl);
+		return cnt;
+	}
+	
+	private boolean visit(int node, ISpatialVisitor visitor, Rectangle rect, Class cl) {
+		if(!overlaps(node, rect))
+			return true;
+		
+		int first = child(node);
+		if(first < 0) {
+			int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+			for(int ii = start; ii < end; ii++) {
+				ISpatialObject o = this.objects[member(ii)];
+				if((cl == null || o.getClass() == cl) && o.containedPartiallyBy(rect)) {
+					if(!visitor.visit(o))
+						return false;
+				}
+			}
+			return true;
+		}
+		
+		for(int ii = 0; ii < 4; ii++) {
+			if(!visit(first + ii, visitor, rect, cl))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Rectangle collision (obj == null) or object collision, following
+	 * the QuadTreeNode.geometryIntersects rules for each.
+	 * @param area Rectangle the members without a path test against,
+	 * 	null to test against obj's points
+	 */
+	private boolean intersects(int node, int x0, int y0, int x1, int y1,
+			Rectangle area, ISpatialObject obj) {
+		if(!overlaps(node, x0, y0, x1, y1))
+			return false;
+		
+		int first = child(node);
+		if(first >= 0) {
+			for(int ii = 0; ii < 4; ii++) {
+				if(intersects(first + ii, x0, y0, x1, y1, area, obj))
+					return true;
+			}
+			return false;
+		}
+		
+		int start = nodeInt(node, N_START), end = start + nodeInt(node, N_COUNT);
+		for(int ii = start; ii < end; ii++) {
+			ISpatialObject oo = this.objects[member(ii)];
+			if(oo == obj || (oo.getCategories() & ISpatialObject.CATEGORY_SOLID) == 0)
+				continue;
+			
+			if(area != null) {
+				if(oo.intersects(area))
+					return true;
+			} else if(oo.intersects(obj.points())) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private boolean overlaps(int node, Rectangle r) {
+		return overlaps(node, r.x, r.y, r.x + r.width, r.y + r.height);
+	}
+	
+	/**
+	 * Same answer as QuadTreeNode.meets against the node's loose bounds:
+	 * both must be non-empty and overlap.
+	 */
+	private boolean overlaps(int node, int x0, int y0, int x1, int y1) {
+		int x = nodeInt(node, N_X), y = nodeInt(node, N_Y);
+		int w = nodeInt(node, N_W), h = nodeInt(node, N_H);
+		
+		return w > 0 && h > 0 && x1 > x0 && y1 > y0
+			&& x0 < x + w && x1 > x
+			&& y0 < y + h && y1 > y;
+	}
+	
+	private int nodeInt(int node, int field) {
+		return this.buf.getInt(HEADER_BYTES + node * NODE_BYTES + field);
+	}
+	
+	private int child(int node) {
+		return nodeInt(node, N_CHILD);
+	}
+	
+	private int member(int ii) {
+		return this.buf.getInt(this.membersAt + ii * 4);
+	}
+	
+	/**
+	 * Breadth first numbering of a live tree, so that each node's four
+	 * children are stored next to each other.
+	 */
+	private static class Layout {
+		private final QuadTree tree;
+		private final List nodes;
+		private final Map ids;
+		private final List objects;
+		private final IntList memberIds;
+		private int members;
+		
+		Layout(QuadTree tree) {
+			this.tree = tree;
+			this.nodes = new ArrayList();
+			this.ids = new IdentityHashMap();
+			this.objects = new ArrayList();
+			this.memberIds = new IntList();
+			this.members = 0;
+			
+			this.nodes.add(tree.getRoot());
+			for(int ii = 0; ii < this.nodes.size(); ii++) {
+				QuadTreeNode node = (QuadTreeNode)this.nodes.get(ii);
+				if(node.isLeaf()) {
+					ISpatialObject[] leaf = node.getLeafMembers();
+					int sz = leaf.length;
+					for(int jj = 0; jj < sz; jj++)
+						this.memberIds.add(idOf(leaf[jj]));
+					this.members += sz;
+				} else {
+					for(int qq = 0; qq < 4; qq++)
+						this.nodes.add(node.getChild(qq));
+				}
+			}
+		}
+		
+		/**
+		 * Number an object the first time it is met. Points live in
+		 * a single leaf, so only objects which can be met again, in
+		 * the other leaves they cross, are remembered.
+		 */
+		private int idOf(ISpatialObject o) {
+			if(o.pointCount() != 1) {
+				Integer known = (Integer)this.ids.get(o);
+				if(known != null)
+					return known.intValue();
+				this.ids.put(o, Integer.valueOf(this.objects.size()));
+			}
+			
+			this.objects.add(o);
+			return this.objects.size() - 1;
+		}
+		
+		int byteSize( ) {
+			long size = HEADER_BYTES + (long)this.nodes.size() * NODE_BYTES + (long)this.members * 4;
+			if(size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Tree too large to pack: " + size + " bytes");
+			return (int)size;
+		}
+		
+		ISpatialObject[] objects( ) {
+			return (ISpatialObject[])this.objects.toArray(new ISpatialObject[this.objects.size()]);
+		}
+		
+		void write(ByteBuffer buf) {
+			Rectangle b = this.tree.getBounds();
+			buf.putInt(0, MAGIC);
+			buf.putInt(4, this.nodes.size());
+			buf.putInt(8, this.members);
+			buf.putInt(12, this.objects.size());
+			buf.putInt(16, b.x);
+			buf.putInt(20, b.y);
+			buf.putInt(24, b.width);
+			buf.putInt(28, b.height);
+			buf.putInt(32, this.tree.isLoose() ? PACKED_LOOSE : 0);
+			
+			int membersAt = HEADER_BYTES + this.nodes.size() * NODE_BYTES;
+			int nextChild = 1;
+			int nextMember = 0;
+			for(int ii = 0; ii < this.nodes.size(); ii++) {
+				QuadTreeNode node = (QuadTreeNode)this.nodes.get(ii);
+				Rectangle r = node.getLooseBounds();
+				int at = HEADER_BYTES + ii * NODE_BYTES;
+				
+				buf.putInt(at + N_X, r.x);
+				buf.putInt(at + N_Y, r.y);
+				buf.putInt(at + N_W, r.width);
+				buf.putInt(at + N_H, r.height);
+				
+				if(node.isLeaf()) {
+					ISpatialObject[] leaf = node.getLeafMembers();
+					int sz = leaf.length;
+					buf.putInt(at + N_CHILD, -1);
+					buf.putInt(at + N_START, nextMember);
+					buf.putInt(at + N_COUNT, sz);
+					for(int jj = 0; jj < sz; jj++, nextMember++)
+						buf.putInt(membersAt + nextMember * 4, this.memberIds.get(nextMember));
+				} else {
+					buf.putInt(at + N_CHILD, nextChild);
+					buf.putInt(at + N_START, 0);
+					buf.putInt(at + N_COUNT, 0);
+					nextChild += 4;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fork-join traversal for range queries over large regions, see
+ * QuadTree.setParallelThreshold. A task forks one subtask per child
+ * overlapping the query while the part of its subtree under the query
+ * is estimated to hold at least the threshold number of objects, and
+ * runs the ordinary serial query below that. Each task collects into
+ * its own list; the lists are merged in quadrant order on the way back
+ * up, so results come out in the same order as the serial query.
+ *
+ * Queries never lock (see QuadTreeNode), so the tasks need nothing
+ * beyond the tree's own publication rules.
+ */
+final class ParallelQuery extends RecursiveTask {
+	private static final int QUERY_INSIDE = 0;
+	private static final int QUERY_INTERSECTS = 1;
+
+	private final int mode;
+	private final QuadTreeNode node;
+	private final Rectangle rect;
+	private final int categories;
+	private final Class cl;
+	private final boolean collect;
+	private final int threshold;
+	private final AtomicBoolean found;
+
+	private List results;
+	private int count;
+
+	private ParallelQuery(int mode, QuadTreeNode node, Rectangle rect, int categories, Class cl,
+			boolean collect, int threshold, AtomicBoolean found) {
+		this.mode = mode;
+		this.node = node;
+		this.rect = rect;
+		this.categories = categories;
+		this.cl = cl;
+		this.collect = collect;
+		this.threshold = threshold;
+		this.found = found;
+	}
+
+	/**
+	 * Estimated number of objects of a subtree inside the query: the
+	 * node's member count, scaled by the share of its bounds the query
+	 * overlaps. Only the spread within the node is assumed even, so a
+	 * query over a crowded corner of the tree forks where the objects
+	 * are, and one over empty space does not fork at all.
+	 * @param node Subtree root
+	 * @param rect Query rectangle
+	 * @return Estimated object count
+	 */
+	static double estimate(QuadTreeNode node, Rectangle rect) {
+		Rectangle bounds = node.getBounds();
+		long w = (long)Math.min(bounds.x + bounds.width, rect.x + rect.width) - Math.max(bounds.x, rect.x);
+		long h = (long)Math.min(bounds.y + bounds.height, rect.y + rect.height) - Math.max(bounds.y, rect.y);
+		if(w <= 0 || h <= 0)
+			return 0;
+		return (double)node.size() * w * h / ((double)bounds.width * bounds.height);
+	}
+
+	/**
+	 * Parallel objectsInside, filtered as QuadTreeNode's.
+	 */
+	static int objectsInside(QuadTreeNode root, List objects, Rectangle rect, int categories, Class cl,
+			int threshold) {
+		ParallelQuery task = new ParallelQuery(QUERY_INSIDE,
+				root, rect, categories, cl, objects != null, threshold, null);
+		ForkJoinPool.commonPool().invoke(task);
+
+		if(objects != null)
+			objects.addAll(task.results);
+		return task.count;
+	}
+
+	/**
+	 * Parallel geometryIntersects(Rectangle). Subtrees not yet started
+	 * are skipped once any task finds an intersection.
+	 */
+	static boolean geometryIntersects(QuadTreeNode root, Rectangle rect, int categories,
+			int threshold) {
+		AtomicBoolean found = new AtomicBoolean(false);
+		ForkJoinPool.commonPool().invoke(new ParallelQuery(QUERY_INTERSECTS,
+				root, rect, categories, null, false, threshold, found));
+		return found.get();
+	}
+
+	protected Object compute( ) {
+		if(this.found != null && this.found.get())
+			return null;
+
+		if(this.node.isLeaf() || estimate(this.node, this.rect) < this.threshold) {
+			serial();
+			return null;
+		}
+
+		List tasks = new ArrayList(4);
+		for(int ii = 0; ii < 4; ii++) {
+			QuadTreeNode child = this.node.getChild(ii);
+
+			// collapsed under us, the serial query sees the new leaf
+			if(child == null) {
+				serial();
+				return null;
+			}
+
+			Rectangle cb = child.getLooseBounds();
+			if(cb.contains(this.rect) || cb.intersects(this.rect)) {
+				tasks.add(new ParallelQuery(this.mode, child, this.rect, this.categories, this.cl,
+						this.collect, this.threshold, this.found));
+			}
+		}
+
+		invokeAll(tasks);
+
+		if(this.mode != QUERY_INTERSECTS) {
+			for(int ii = 0; ii < tasks.size(); ii++)
+				this.count += ((ParallelQuery)tasks.get(ii)).count;
+
+			if(this.collect) {
+				this.results = new ArrayList(this.count);
+				for(int ii = 0; ii < tasks.size(); ii++)
+					this.results.addAll(((ParallelQuery)tasks.get(ii)).results);
+			}
+		}
+
+		return null;
+	}
+
+	private void serial( ) {
+		switch(this.mode) {
+		case QUERY_INSIDE:
+			this.results = this.collect ? new ArrayList() : null;
+			this.count = this.node.objectsInside(this.results, this.rect, this.categories, this.cl);
+			break;
+		case QUERY_INTERSECTS:
+			if(this.node.geometryIntersects(this.rect, this.categories))
+				this.found.set(true);
+			break;
+		}
+	}
+
+	private static final long serialVersionUID = -4009035749279988534L;
+}
@@ -0,0 +1,585 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+import java.awt.Rectangle;
+
+/** Kinetic PR Quad Tree for pure point data, addressed by int handles.
+ * 
+ * QuadTree pays for every point with an ISpatialObject, its parent link,
+ * a java.awt.Point and the Rectangles handed out by getBounds. For
+ * millions of agents that are nothing but a position this is most of the
+ * heap. PointQuadTree keeps the same bucket split/collapse behaviour as
+ * QuadTreeNode but stores everything in parallel int arrays:
+ * 
+ *  - points: x, y, owning leaf and slot within that leaf, indexed by handle
+ *  - nodes: bounds, parent, first child (children are allocated four at a
+ *    time, in QUADTREENODE_ order), subtree count, and an int[] of member
+ *    handles for leaves
+ * 
+ * add hands out a handle, move(handle, x, y) relocates the point and
+ * queries report handles into an IntList. Once the arrays have grown to
+ * fit, moves and queries allocate nothing: node blocks and leaf buffers
+ * freed by a collapse are kept for the next split.
+ * 
+ * Like QuadTreeNode a leaf splits when it already holds splitSize points
+ * and another arrives, and a node collapses back into a leaf when a point
+ * leaving one of its children drops it below splitSize. Leaves narrower
+ * than two units never split, so stacked points overflow the bucket
+ * rather than recursing forever.
+ * 
+ * PointQuadTree is not thread safe; callers must serialize writers
+ * against readers.
+ */
+public class PointQuadTree {
+	private static final int NO_NODE = -1;
+	private static final int ROOT = 0;
+	
+	private Rectangle bounds;
+	private int splitAfter;
+	
+	// point storage, indexed by handle
+	private int[] px, py;
+	private int[] pointLeaf, pointSlot;
+	private int[] freeHandles;
+	private int freeHandleCount;
+	private int handleCount;
+	
+	// node storage, indexed by node
+	private int[] nodeX, nodeY, nodeW, nodeH;
+	private int[] nodeParent, nodeChild, nodeCount;
+	private int[][] leafMembers;
+	private int[] leafSize;
+	private int[] freeBlocks;
+	private int freeBlockCount;
+	private int nodeTop;
+	
+	public PointQuadTree(Rectangle bounds) {
+		this(bounds, QuadTree.QUADTREE_DEFAULT_SPLIT, 1024);
+	}
+	
+	public PointQuadTree(Rectangle bounds, int splitSize) {
+		this(bounds, splitSize, 1024);
+	}
+	
+	/**
+	 * @param bounds Area covered by the tree
+	 * @param splitSize Bucket size of a leaf
+	 * @param capacity Expected number of points, avoids regrowing
+	 */
+	public PointQuadTree(Rectangle bounds, int splitSize, int capacity) {
+		if(splitSize < 1)
+			throw new IllegalArgumentException("splitSize must be positive: " + splitSize);
+		
+		this.bounds = new Rectangle(bounds);
+		this.splitAfter = splitSize;
+		
+		capacity = Math.max(capacity, 16);
+		this.px = new int[capacity];
+		this.py = new int[capacity];
+		this.pointLeaf = new int[capacity];
+		this.pointSlot = new int[capacity];
+		this.freeHandles = new int[16];
+		
+		// about one leaf per splitSize/2 points, four nodes per block
+		int nodes = Math.max(capacity / Math.max(1, splitSize / 2), 16);
+		nodes = ((nodes + 3) / 4) * 4 + 1;
+		this.nodeX = new int[nodes];
+		this.nodeY = new int[nodes];
+		this.nodeW = new int[nodes];
+		this.nodeH = new int[nodes];
+		this.nodeParent = new int[nodes];
+		this.nodeChild = new int[nodes];
+		this.nodeCount = new int[nodes];
+		this.leafMembers = new int[nodes][];
+		this.leafSize = new int[nodes];
+		this.freeBlocks = new int[16];
+		
+		clear();
+	}
+	
+	public int size( ) {
+		return this.nodeCount[ROOT];
+	}
+	
+	public boolean isEmpty( ) {
+		return this.nodeCount[ROOT] == 0;
+	}
+	
+	public int getSplitSize( ) {
+		return this.splitAfter;
+	}
+	
+	public Rectangle getBounds( ) {
+		return this.bounds;
+	}
+	
+	public boolean geometryContains(int x, int y) {
+		return this.bounds.contains(x, y);
+	}
+	
+	/**
+	 * Is the handle currently in the tree?
+	 * @param handle Point handle
+	 * @return True if the handle refers to a live point
+	 */
+	public boolean contains(int handle) {
+		return handle >= 0 && handle < this.handleCount && this.pointLeaf[handle] != NO_NODE;
+	}
+	
+	public int getX(int handle) {
+		checkHandle(handle);
+		return this.px[handle];
+	}
+	
+	public int getY(int handle) {
+		checkHandle(handle);
+		return this.py[handle];
+	}
+	
+	/**
+	 * Add a point to the tree.
+	 * @param x Horizontal position
+	 * @param y Vertical position
+	 * @return Handle of the new point, or -1 if it lies outside the tree
+	 */
+	public int add(int x, int y) {
+		if(!this.bounds.contains(x, y))
+			return -1;
+		
+		int handle;
+		if(this.freeHandleCount > 0) {
+			handle = this.freeHandles[--this.freeHandleCount];
+		} else {
+			if(this.handleCount == this.px.length)
+				growPoints();
+			handle = this.handleCount++;
+		}
+		
+		this.px[handle] = x;
+		this.py[handle] = y;
+		insert(ROOT, handle);
+		return handle;
+	}
+	
+	/**
+	 * Remove a point from the tree. The handle may be handed out again
+	 * by a later add.
+	 * @param handle Point handle
+	 * @return True if the point was removed
+	 */
+	public boolean remove(int handle) {
+		if(!contains(handle))
+			return false;
+		
+		int leaf = this.pointLeaf[handle];
+		detach(handle);
+		for(int node = leaf; node != NO_NODE; node = this.nodeParent[node])
+			this.nodeCount[node]--;
+		
+		if(this.nodeParent[leaf] != NO_NODE)
+			balance(this.nodeParent[leaf]);
+		
+		if(this.freeHandleCount == this.freeHandles.length)
+			this.freeHandles = grow(this.freeHandles);
+		this.freeHandles[this.freeHandleCount++] = handle;
+		return true;
+	}
+	
+	/**
+	 * Move a point. If it is still inside its leaf only the coordinates
+	 * change, otherwise it is handed to the nearest ancestor which
+	 * bounds it and the old leaf's parent is balanced, as
+	 * QuadTreeNode.objectMoved does for kinetic objects.
+	 * @param handle Point handle
+	 * @param x New horizontal position
+	 * @param y New vertical position
+	 */
+	public void move(int handle, int x, int y) {
+		checkHandle(handle);
+		
+		if(!this.bounds.contains(x, y))
+			throw new IllegalStateException("Point moved outside the bounds of the PointQuadTree!");
+		
+		this.px[handle] = x;
+		this.py[handle] = y;
+		
+		int leaf = this.pointLeaf[handle];
+		if(nodeContains(leaf, x, y))
+			return;
+		
+		detach(handle);
+		
+		// walk up until a node bounds the point again, uncounting
+		// it on the way
+		int node = leaf;
+		while(!nodeContains(node, x, y)) {
+			this.nodeCount[node]--;
+			node = this.nodeParent[node];
+		}
+		this.nodeCount[node]--;
+		
+		insert(node, handle);
+		balance(this.nodeParent[leaf]);
+	}
+	
+	/**
+	 * Move a point by dx and dy.
+	 * @param handle Point handle
+	 * @param dx Distance to move horizontally
+	 * @param dy Distance to move vertically
+	 */
+	public void translate(int handle, int dx, int dy) {
+		checkHandle(handle);
+		move(handle, this.px[handle] + dx, this.py[handle] + dy);
+	}
+	
+	/**
+	 * Is there a point at exactly (x,y)?
+	 * @param x Horizontal position
+	 * @param y Vertical position
+	 * @return True if a point sits on (x,y)
+	 */
+	public boolean geometryIntersects(int x, int y) {
+		if(!this.bounds.contains(x, y))
+			return false;
+		
+		int node = ROOT;
+		while(this.nodeChild[node] != NO_NODE)
+			node = this.nodeChild[node] + quadrant(node, x, y);
+		
+		int[] members = this.leafMembers[node];
+		int sz = this.leafSize[node];
+		for(int ii = 0; ii < sz; ii++) {
+			int h = members[ii];
+			if(this.px[h] == x && this.py[h] == y)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Is there any point inside the rectangle?
+	 * @return True if at least one point lies inside
+	 */
+	public boolean geometryIntersects(int x, int y, int w, int h) {
+		return anyInside(ROOT, x, y, x + w, y + h);
+	}
+	
+	/**
+	 * Collect the handles of every point inside the rectangle.
+	 * 
+	 * If a null list is passed, objectsInside still runs, but will
+	 * just return the count of points inside the rectangle.
+	 * @param handles List to fill with handles (may be null)
+	 * @return Count of points found
+	 */
+	public int objectsInside(IntList handles, int x, int y, int w, int h) {
+		return objectsInside(ROOT, handles, x, y, x + w, y + h);
+	}
+	
+	public int objectsInside(IntList handles, Rectangle rect) {
+		return objectsInside(handles, rect.x, rect.y, rect.width, rect.height);
+	}
+	
+	/**
+	 * Collect the handle of every point in the tree.
+	 * @param handles List to fill
+	 */
+	public void toList(IntList handles) {
+		for(int h = 0; h < this.handleCount; h++) {
+			if(this.pointLeaf[h] != NO_NODE)
+				handles.add(h);
+		}
+	}
+	
+	/**
+	 * Empty the tree. All handles become invalid.
+	 */
+	public void clear( ) {
+		this.handleCount = 0;
+		this.freeHandleCount = 0;
+		this.freeBlockCount = 0;
+		this.nodeTop = 1;
+		
+		this.nodeX[ROOT] = this.bounds.x;
+		this.nodeY[ROOT] = this.bounds.y;
+		this.nodeW[ROOT] = this.bounds.width;
+		this.nodeH[ROOT] = this.bounds.height;
+		this.nodeParent[ROOT] = NO_NODE;
+		this.nodeChild[ROOT] = NO_NODE;
+		this.nodeCount[ROOT] = 0;
+		this.leafSize[ROOT] = 0;
+	}
+	
+	private int objectsInside(int node, IntList handles, int x0, int y0, int x1, int y1) {
+		if(!overlaps(node, x0, y0, x1, y1))
+			return 0;
+		
+		int first = this.nodeChild[node];
+		if(first == NO_NODE) {
+			int cnt = 0;
+			int[] members = this.leafMembers[node];
+			int sz = this.leafSize[node];
+			for(int ii = 0; ii < sz; ii++) {
+				int h = members[ii];
+				int x = this.px[h], y = this.py[h];
+				if(x >= x0 && x < x1 && y >= y0 && y < y1) {
+					if(handles != null)
+						handles.add(h);
+					cnt++;
+				}
+			}
+			return cnt;
+		}
+		
+		return objectsInside(first, handles, x0, y0, x1, y1)
+			+ objectsInside(first + 1, handles, x0, y0, x1, y1)
+			+ objectsInside(first + 2, handles, x0, y0, x1, y1)
+			+ objectsInside(first + 3, handles, x0, y0, x1, y1);
+	}
+	
+	private boolean anyInside(int node, int x0, int y0, int x1, int y1) {
+		if(this.nodeCount[node] == 0 || !overlaps(node, x0, y0, x1, y1))
+			return false;
+		
+		int first = this.nodeChild[node];
+		if(first == NO_NODE) {
+			int[] members = this.leafMembers[node];
+			int sz = this.leafSize[node];
+			for(int ii = 0; ii < sz; ii++) {
+				int h = members[ii];
+				int x = this.px[h], y = this.py[h];
+				if(x >= x0 && x < x1 && y >= y0 && y < y1)
+					return true;
+			}
+			return false;
+		}
+		
+		return anyInside(first, x0, y0, x1, y1)
+			|| anyInside(first + 1, x0, y0, x1, y1)
+			|| anyInside(first + 2, x0, y0, x1, y1)
+			|| anyInside(first + 3, x0, y0, x1, y1);
+	}
+	
+	/**
+	 * Push a point down from node to a leaf, counting it in every
+	 * node it passes and splitting a full leaf on the way.
+	 */
+	private void insert(int node, int handle) {
+		int x = this.px[handle], y = this.py[handle];
+		while(true) {
+			this.nodeCount[node]++;
+			
+			if(this.nodeChild[node] == NO_NODE) {
+				if(this.leafSize[node] < this.splitAfter
+						|| this.nodeW[node] < 2 || this.nodeH[node] < 2) {
+					append(node, handle);
+					return;
+				}
+				
+				split(node);
+			}
+			
+			node = this.nodeChild[node] + quadrant(node, x, y);
+		}
+	}
+	
+	/**
+	 * Turn a full leaf into four children, with the same geometry as
+	 * QuadTreeNode.add, and push its members into them.
+	 */
+	private void split(int node) {
+		int first = allocateBlock();
+		
+		int x = this.nodeX[node], y = this.nodeY[node];
+		int halfWidth = this.nodeW[node] / 2;
+		int halfHeight = this.nodeH[node] / 2;
+		int fudgeWidth = this.nodeW[node] - (halfWidth * 2);
+		int fudgeHeight = this.nodeH[node] - (halfHeight * 2);
+		
+		initNode(first + QuadTree.QUADTREENODE_NW, node, x, y, halfWidth, halfHeight);
+		initNode(first + QuadTree.QUADTREENODE_NE, node, x + halfWidth, y, halfWidth + fudgeWidth, halfHeight);
+		initNode(first + QuadTree.QUADTREENODE_SE, node, x + halfWidth, y + halfHeight, halfWidth + fudgeWidth, halfHeight + fudgeHeight);
+		initNode(first + QuadTree.QUADTREENODE_SW, node, x, y + halfHeight, halfWidth, halfHeight + fudgeHeight);
+		
+		this.nodeChild[node] = first;
+		
+		int[] members = this.leafMembers[node];
+		int sz = this.leafSize[node];
+		this.leafSize[node] = 0;
+		for(int ii = 0; ii < sz; ii++) {
+			int h = members[ii];
+			insert(first + quadrant(node, this.px[h], this.py[h]), h);
+		}
+	}
+	
+	/**
+	 * Collapse node back into a leaf if its subtree has dropped below
+	 * the split size.
+	 */
+	private void balance(int node) {
+		if(node == NO_NODE || this.nodeChild[node] == NO_NODE)
+			return;
+		
+		if(this.nodeCount[node] < this.splitAfter) {
+			int first = this.nodeChild[node];
+			this.nodeChild[node] = NO_NODE;
+			this.leafSize[node] = 0;
+			for(int ii = 0; ii < 4; ii++)
+				reclaim(node, first + ii);
+			freeBlock(first);
+		}
+	}
+	
+	/**
+	 * Move every point below child into the leaf target, releasing
+	 * any blocks the child owns.
+	 */
+	private void reclaim(int target, int child) {
+		int first = this.nodeChild[child];
+		if(first == NO_NODE) {
+			int[] members = this.leafMembers[child];
+			int sz = this.leafSize[child];
+			for(int ii = 0; ii < sz; ii++)
+				append(target, members[ii]);
+			this.leafSize[child] = 0;
+		} else {
+			for(int ii = 0; ii < 4; ii++)
+				reclaim(target, first + ii);
+			this.nodeChild[child] = NO_NODE;
+			freeBlock(first);
+		}
+	}
+	
+	private void append(int leaf, int handle) {
+		int[] members = this.leafMembers[leaf];
+		int sz = this.leafSize[leaf];
+		if(members == null) {
+			members = new int[Math.max(this.splitAfter + 1, 4)];
+			this.leafMembers[leaf] = members;
+		} else if(sz == members.length) {
+			members = grow(members);
+			this.leafMembers[leaf] = members;
+		}
+		
+		members[sz] = handle;
+		this.leafSize[leaf] = sz + 1;
+		this.pointLeaf[handle] = leaf;
+		this.pointSlot[handle] = sz;
+	}
+	
+	/**
+	 * Take a point out of its leaf's member array (swap with last).
+	 * Counts are left to the caller.
+	 */
+	private void detach(int handle) {
+		int leaf = this.pointLeaf[handle];
+		int slot = this.pointSlot[handle];
+		int[] members = this.leafMembers[leaf];
+		int last = --this.leafSize[leaf];
+		
+		if(slot != last) {
+			int moved = members[last];
+			members[slot] = moved;
+			this.pointSlot[moved] = slot;
+		}
+		
+		this.pointLeaf[handle] = NO_NODE;
+	}
+	
+	private void initNode(int node, int parent, int x, int y, int w, int h) {
+		this.nodeX[node] = x;
+		this.nodeY[node] = y;
+		this.nodeW[node] = w;
+		this.nodeH[node] = h;
+		this.nodeParent[node] = parent;
+		this.nodeChild[node] = NO_NODE;
+		this.nodeCount[node] = 0;
+		this.leafSize[node] = 0;
+	}
+	
+	private int allocateBlock( ) {
+		if(this.freeBlockCount > 0)
+			return this.freeBlocks[--this.freeBlockCount];
+		
+		if(this.nodeTop + 4 > this.nodeX.length)
+			growNodes();
+		
+		int first = this.nodeTop;
+		this.nodeTop += 4;
+		return first;
+	}
+	
+	private void freeBlock(int first) {
+		if(this.freeBlockCount == this.freeBlocks.length)
+			this.freeBlocks = grow(this.freeBlocks);
+		this.freeBlocks[this.freeBlockCount++] = first;
+	}
+	
+	/**
+	 * Same quadrant choice as QuadTreeNode.add for single points.
+	 */
+	private int quadrant(int node, int x, int y) {
+		if(x < this.nodeX[node] + this.nodeW[node]/2) {
+			if(y < this.nodeY[node] + this.nodeH[node]/2)
+				return QuadTree.QUADTREENODE_NW;
+			return QuadTree.QUADTREENODE_SW;
+		} else {
+			if(y < this.nodeY[node] + this.nodeH[node]/2)
+				return QuadTree.QUADTREENODE_NE;
+			return QuadTree.QUADTREENODE_SE;
+		}
+	}
+	
+	private boolean nodeContains(int node, int x, int y) {
+		return x >= this.nodeX[node] && x < this.nodeX[node] + this.nodeW[node]
+			&& y >= this.nodeY[node] && y < this.nodeY[node] + this.nodeH[node];
+	}
+	
+	private boolean overlaps(int node, int x0, int y0, int x1, int y1) {
+		return x0 < this.nodeX[node] + this.nodeW[node] && x1 > this.nodeX[node]
+			&& y0 < this.nodeY[node] + this.nodeH[node] && y1 > this.nodeY[node];
+	}
+	
+	private void checkHandle(int handle) {
+		if(!contains(handle))
+			throw new IllegalArgumentException("Invalid point handle: " + handle);
+	}
+	
+	private void growPoints( ) {
+		this.px = grow(this.px);
+		this.py = grow(this.py);
+		this.pointLeaf = grow(this.pointLeaf);
+		this.pointSlot = grow(this.pointSlot);
+	}
+	
+	private void growNodes( ) {
+		this.nodeX = grow(this.nodeX);
+		this.nodeY = grow(this.nodeY);
+		this.nodeW = grow(this.nodeW);
+		this.nodeH = grow(this.nodeH);
+		this.nodeParent = grow(this.nodeParent);
+		this.nodeChild = grow(this.nodeChild);
+		this.nodeCount = grow(this.nodeCount);
+		this.leafSize = grow(this.leafSize);
+		
+		int[][] members = new int[this.leafMembers.length * 2][];
+		System.arraycopy(this.leafMembers, 0, members, 0, this.leafMembers.length);
+		this.leafMembers = members;
+	}
+	
+	private static int[] grow(int[] a) {
+		int[] grown = new int[a.length * 2];
+		System.arraycopy(a, 0, grown, 0, a.length);
+		return grown;
+	}
+}
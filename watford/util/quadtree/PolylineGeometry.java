@@ -0,0 +1,171 @@
+/** Kinetic Hybrid PR/PMR Quad Tree
+ * 
+ * Contributed under the same terms as the original work, see LICENSE.
+ * 
+ * Created on 17 October 2026
+ * 
+ * $Id$
+ */
+
+package watford.util.quadtree;
+
+/**
+ * Segment against rectangle tests straight on a polyline's int vertex
+ * arrays, for the collision tests GeneralPath would otherwise answer
+ * through a PathIterator in floats. A segment hits a rectangle when it
+ * passes through the inside; touching the edge doesn't count, as in
+ * GeneralPath.intersects, and an empty rectangle is never hit.
+ * 
+ * Only the line's own segments are tested. GeneralPath.intersects
+ * closes the path back to its first vertex and fills it, so it also
+ * hits the closing segment and anything the line encloses: a box inside
+ * the U of (0,0)-(100,0)-(100,100)-(0,100) hits the GeneralPath but not
+ * the line.
+ * 
+ * Each segment is first rejected on its bounding box, then accepted if
+ * either end is inside, and otherwise hits only when the rectangle's
+ * corners lie on both sides of its line. The side tests are exact in
+ * longs while coordinates stay within +/-2^30.
+ */
+public final class PolylineGeometry {
+	
+	private PolylineGeometry( ) {
+	}
+	
+	/**
+	 * Does any segment of a polyline pass through the inside of a
+	 * rectangle?
+	 * @param x Horizontal vertex positions
+	 * @param y Vertical vertex positions
+	 * @param count Number of vertices, a single vertex has no segments
+	 * @param rx Left edge of the rectangle
+	 * @param ry Top edge of the rectangle
+	 * @param rw Width of the rectangle
+	 * @param rh Height of the rectangle
+	 * @return Did any segment hit?
+	 */
+	public static boolean intersects(int[] x, int[] y, int count,
+			int rx, int ry, int rw, int rh) {
+		return intersects(x, y, 0, count - 2, rx, ry, rw, rh);
+	}
+	
+	/**
+	 * Test only segments first to last, segment ii running from vertex
+	 * ii to vertex ii+1.
+	 * @see #intersects(int[], int[], int, int, int, int, int)
+	 */
+	public static boolean intersects(int[] x, int[] y, int first, int last,
+			int rx, int ry, int rw, int rh) {
+		if(rw <= 0 || rh <= 0)
+			return false;
+		
+		int rx1 = rx + rw, ry1 = ry + rh;
+		for(int ii = first; ii <= last; ii++) {
+			if(crosses(x[ii], y[ii], x[ii+1], y[ii+1], rx, ry, rx1, ry1))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Does a single segment, from (x0, y0) to (x1, y1), pass through
+	 * the inside of a rectangle?
+	 */
+	public static boolean intersects(int x0, int y0, int x1, int y1,
+			int rx, int ry, int rw, int rh) {
+		if(rw <= 0 || rh <= 0)
+			return false;
+		return crosses(x0, y0, x1, y1, rx, ry, rx + rw, ry + rh);
+	}
+	
+	/**
+	 * Does any segment lie along the left or top edge of a rectangle
+	 * for some length, or sit on one as a single point? intersects never
+	 * counts these, as they only touch the rectangle. A quad tree cell
+	 * owns its left and top edges, as it does the points on them, so a
+	 * line along the edge between two cells belongs to the one right of
+	 * or below it. Touching a corner doesn't count.
+	 * @param x Horizontal vertex positions
+	 * @param y Vertical vertex positions
+	 * @param count Number of vertices
+	 * @param rx Left edge of the rectangle
+	 * @param ry Top edge of the rectangle
+	 * @param rw Width of the rectangle
+	 * @param rh Height of the rectangle
+	 * @return Does a segment lie along either edge?
+	 */
+	public static boolean alongEdges(int[] x, int[] y, int count,
+			int rx, int ry, int rw, int rh) {
+		if(rw <= 0 || rh <= 0)
+			return false;
+		int rx1 = rx + rw, ry1 = ry + rh;
+		for(int ii = 0; ii < count - 1; ii++) {
+			int x0 = x[ii], y0 = y[ii], x1 = x[ii+1], y1 = y[ii+1];
+			if(x0 == x1 && y0 == y1) {
+				if((x0 == rx || y0 == ry) && x0 >= rx && x0 < rx1 && y0 >= ry && y0 < ry1)
+					return true;
+			} else if(x0 == rx && x1 == rx) {
+				if(Math.min(y0, y1) < ry1 && Math.max(y0, y1) > ry)
+					return true;
+			} else if(y0 == ry && y1 == ry) {
+				if(Math.min(x0, x1) < rx1 && Math.max(x0, x1) > rx)
+					return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Does any segment of a polyline pass through the pixel at a point,
+	 * that is the unit square below and right of it? Unlike
+	 * GeneralPath.intersects(x, y, 1, 1), a pixel the line encloses
+	 * without crossing isn't touched.
+	 * @param x Horizontal vertex positions
+	 * @param y Vertical vertex positions
+	 * @param count Number of vertices
+	 * @param px Horizontal position
+	 * @param py Vertical position
+	 * @return Does the line cross the pixel?
+	 */
+	public static boolean touches(int[] x, int[] y, int count, int px, int py) {
+		int px1 = px + 1, py1 = py + 1;
+		for(int ii = 0; ii < count - 1; ii++) {
+			if(crosses(x[ii], y[ii], x[ii+1], y[ii+1], px, py, px1, py1))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private static boolean crosses(int x0, int y0, int x1, int y1,
+			int rx0, int ry0, int rx1, int ry1) {
+		// bounding boxes which only touch don't count
+		if(x0 <= rx0 && x1 <= rx0 || x0 >= rx1 && x1 >= rx1)
+			return false;
+		if(y0 <= ry0 && y1 <= ry0 || y0 >= ry1 && y1 >= ry1)
+			return false;
+		
+		if(x0 > rx0 && x0 < rx1 && y0 > ry0 && y0 < ry1)
+			return true;
+		if(x1 > rx0 && x1 < rx1 && y1 > ry0 && y1 < ry1)
+			return true;
+		
+		// the corners must lie on both sides of the line, not just on it
+		long dx = (long)x1 - x0, dy = (long)y1 - y0;
+		long left = (long)rx0 - x0, right = (long)rx1 - x0;
+		long top = (long)ry0 - y0, bottom = (long)ry1 - y0;
+		long a = side(dx, dy, left, top);
+		long b = side(dx, dy, right, top);
+		long c = side(dx, dy, right, bottom);
+		long d = side(dx, dy, left, bottom);
+		
+		boolean above = a > 0 || b > 0 || c > 0 || d > 0;
+		boolean below = a < 0 || b < 0 || c < 0 || d < 0;
+		return above && below;
+	}
+	
+	private static long side(long dx, long dy, long cx, long cy) {
+		return dx * cy - dy * cx;
+	}
+}
@@ -14,16 +14,21 @@ package watford.util.quadtree;
 import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /** Kinetic Hybrid PR (Point-Region) and PMR (Polygon-Map-Random) Quad Tree
  * This class is a working framework for a Kinetic PR/PMR Quad tree.
  * Basically your standard Quad tree is static and filled once, or
  * filled continuously without any removals. The Kinetic PR/PMR Quad tree
  * takes into account objects in motion, along with static objects.
- * Each object in the quad tree extends the Observable abstract class,
- * which allows the quad tree nodes to be notified when an object
- * moves in the coordinate space.
+ * Each object in the quad tree calls AbstractSpatialSet.objectMoved on
+ * the node(s) which own it, which allows the quad tree nodes to be
+ * notified when an object moves in the coordinate space.
  * 
  * The PMR portion of the Quad tree stores a pointer to a polygon into
  * every node the polygon reports it crosses. Currently this allows for
@@ -35,6 +40,12 @@ import java.util.List;
  * issue is with overly complex polylines which double back on themselves
  * multiple times over.
  * 
+ * setSegmentIndexing(true) is the true PMR alternative: leaves remember
+ * which runs of segments of each AbstractPolyline cross them and the
+ * collision tests only look at those, so a long wall costs a leaf what
+ * its local segments cost. Polylines are then stored only in leaves one
+ * of their segments crosses.
+ * 
  * The kinetic nature of this quad tree only takes action when the update notice
  * informs a node that an object has moved outside the node's boundaries.
  * When this happens a search up the tree is taken for a parent node
@@ -75,6 +86,61 @@ import java.util.List;
  * to be far more of an issue than performance in both terms of time and
  * in necessity.
  * 
+ * Deferred updates are a single threaded take on Winder's scheduling.
+ * With setDeferredUpdates(true) nodes only queue the objects which
+ * report a move out of their leaf; repeated moves of one object coalesce
+ * into one entry (the object holds its own latest position, so the last
+ * move wins, which is all the age tag bought us). commitMoves then
+ * relocates every queued object once and balances each affected node
+ * once, deepest first, see DeferredMoves. Until the commit the index
+ * reflects where objects were, not where they are. It pays when objects
+ * move several times per commit: points crossing a cell edge and back,
+ * or stepping through several cells, migrate once instead of every
+ * time (see DeferredBenchmark). With one move per object per commit,
+ * as in the demo's ticks, immediate updates are faster, as they find
+ * the object and its leaf still in cache.
+ * 
+ * Queries may run from any number of threads while the simulation
+ * thread moves objects; they never lock. Structural changes serialize
+ * on one tree wide write lock instead of the old per-node monitors,
+ * see QuadTreeNode for the publication rules readers rely on.
+ * 
+ * Range queries over large regions (viewports, minimaps) can also be
+ * split across cores with setParallelThreshold, see ParallelQuery.
+ * Off by default; queries estimated to cover fewer objects than the
+ * threshold run serially either way, so small queries don't pay for it.
+ * 
+ * Splitting and merging can be given some hysteresis so an object
+ * hovering on a node boundary doesn't split and collapse the node over
+ * and over: leaves split once they pass the split size, but a node only
+ * collapses once its subtree falls below the (smaller) merge size, and
+ * with a collapse delay only after it has been found that small on
+ * that many balances in a row. getSplitCount and getMergeCount report
+ * the churn.
+ * 
+ * A loose tree (setLooseness) lets each node hold points which have
+ * wandered a little way outside its cell, so an object bouncing on a
+ * boundary stops migrating back and forth between leaves; queries pay
+ * for it by looking at the overlapping margins of neighbouring nodes.
+ * setMaxDepth caps how deep leaves split, for crowds packed too tightly
+ * for any split to separate. getMigrationCount reports how often points
+ * changed leaves.
+ * 
+ * Every object carries category bits (ISpatialObject.getCategories) and
+ * every node the union of the categories and hashed classes below it,
+ * so a query for one category, or objectsInsideLike for one class,
+ * skips whole subtrees which hold none. INoClipping objects start in
+ * CATEGORY_NO_CLIPPING, which the default collision tests leave out.
+ * 
+ * For objects moving in straight lines the tree can also run as a
+ * true kinetic data structure, closer to Winder's: setVelocity starts
+ * a KineticPoint moving on the tree's clock and the tree computes when
+ * it will leave its leaf, its certificate. advanceTo moves the clock
+ * forward and handles only the certificates which fail on the way,
+ * soonest first, so a point crossing no cell costs nothing per tick.
+ * objectsInside(List, Rectangle, double, double) asks who will be in a
+ * region during a window of that clock.
+ * 
  * Winder, Ransom Kershaw. "The Kinetic Quadtree." 2 Dec. 2000.
  * 	<http://www.cs.umd.edu/~mount/Indep/Ransom/>
  * 
@@ -83,6 +149,12 @@ import java.util.List;
  */
 public class QuadTree implements ISpatialSet {
 	public final static int QUADTREE_DEFAULT_SPLIT = 4;
+	public final static double QUADTREE_DEFAULT_LOOSENESS = 1.0;
+	
+	/**
+	 * Most nodes a tree keeps for reuse with node pooling on.
+	 */
+	public final static int QUADTREE_NODE_POOL_LIMIT = 4096;
 	
 	public final static int QUADTREENODE_NW = 0;
 	public final static int QUADTREENODE_NE = 1;
@@ -90,9 +162,30 @@ public class QuadTree implements ISpatialSet {
 	public final static int QUADTREENODE_SW = 3;
 
 	private Rectangle bounds;
-	private QuadTreeNode root;
+	private volatile QuadTreeNode root;
 	private int splitSize;
+	private double looseness;
+	private int maxDepth;
+	private int mergeSize;
+	private int collapseDelay;
+	private long splits;
+	private long merges;
+	private long migrations;
 	private boolean drawNodes;
+	private volatile boolean deferUpdates;
+	private boolean segmentIndexing;
+	private boolean nodePooling;
+	private QuadTreeNode freeNodes;
+	private int freeCount;
+	private final DeferredMoves pendingMoves = new DeferredMoves();
+	private final Object writeLock = new Object();
+	private final Point moveProbe = new Point();
+	/** Scratch for QuadTreeNode.relocateLine, under the write lock */
+	QuadTreeNode[] heldLeaves = new QuadTreeNode[16];
+	QuadTreeNode[] coveredLeaves = new QuadTreeNode[16];
+	private final KineticQueue certificates = new KineticQueue();
+	private volatile double time;
+	private int parallelThreshold;
 	
 	public QuadTree(Rectangle bounds) {
 		this(bounds, QUADTREE_DEFAULT_SPLIT);
@@ -102,8 +195,43 @@ public class QuadTree implements ISpatialSet {
 		this.drawNodes = false;
 		this.bounds = bounds;
 		this.splitSize = splitSize;
+		this.looseness = QUADTREE_DEFAULT_LOOSENESS;
+		this.maxDepth = 0;
+		this.mergeSize = splitSize;
+		this.collapseDelay = 0;
+		this.splits = 0;
+		this.merges = 0;
+		this.migrations = 0;
+		this.deferUpdates = false;
+		this.segmentIndexing = false;
+		this.nodePooling = false;
+		this.freeNodes = null;
+		this.freeCount = 0;
+		this.parallelThreshold = 0;
+		this.time = 0;
 		this.root = new QuadTreeNode(this, null, bounds, splitSize);		
 	}
+	
+	/**
+	 * Bulk load a tree. Much faster than adding the objects one at
+	 * a time for large worlds, see BulkLoader. Objects outside the
+	 * bounds are skipped.
+	 * @param bounds Bounds of the tree
+	 * @param splitSize Objects a leaf holds before it splits
+	 * @param objects ISpatialObjects to index
+	 */
+	public QuadTree(Rectangle bounds, int splitSize, ISpatialObject[] objects) {
+		this(bounds, splitSize);
+		BulkLoader.load(this.root, objects, splitSize, this.maxDepth);
+	}
+	
+	/**
+	 * Bulk load a tree from a collection of ISpatialObjects.
+	 * @see #QuadTree(Rectangle, int, ISpatialObject[])
+	 */
+	public QuadTree(Rectangle bounds, int splitSize, Collection objects) {
+		this(bounds, splitSize, (ISpatialObject[])objects.toArray(new ISpatialObject[objects.size()]));
+	}
 
 	public int size( ) {
 		return this.root.size();
@@ -117,20 +245,382 @@ public class QuadTree implements ISpatialSet {
 		return this.splitSize;
 	}
 	
+	public int getMergeSize( ) {
+		return this.mergeSize;
+	}
+	
+	/**
+	 * Set the size a subtree must fall below before it collapses back
+	 * into a leaf. Defaults to the split size; anything smaller leaves
+	 * room for objects to come and go without restructuring.
+	 * @param mergeSize Collapse threshold, 0 to never collapse
+	 */
+	public void setMergeSize(int mergeSize) {
+		if(mergeSize < 0 || mergeSize > this.splitSize)
+			throw new IllegalArgumentException("Merge size must be between 0 and the split size (" + this.splitSize + ")");
+		this.mergeSize = mergeSize;
+	}
+	
+	public int getCollapseDelay( ) {
+		return this.collapseDelay;
+	}
+	
+	/**
+	 * Defer collapses: a node must be found below the merge size by this
+	 * many balances in a row before it collapses. 0 collapses at once.
+	 * @param balances Number of under-full balances to wait for
+	 */
+	public void setCollapseDelay(int balances) {
+		this.collapseDelay = Math.max(balances, 0);
+	}
+	
+	public double getLooseness( ) {
+		return this.looseness;
+	}
+	
+	boolean isLoose( ) {
+		return this.looseness > 1.0;
+	}
+	
+	/**
+	 * Make the tree loose: every node below the root holds points
+	 * anywhere in its cell grown by this factor (1.5 adds a quarter of
+	 * the cell on each side), and a point only migrates to another leaf
+	 * once it leaves that region. Points are still added to the leaf
+	 * whose cell holds them. Changing it on a populated tree re-adds
+	 * every object.
+	 * @param looseness Factor to grow cells by, 1.0 for a tight tree
+	 */
+	public void setLooseness(double looseness) {
+		if(!(looseness >= 1.0))
+			throw new IllegalArgumentException("Looseness must be at least 1.0");
+		
+		synchronized(this.writeLock) {
+			if(this.looseness == looseness)
+				return;
+			
+			List objects = detachAll();
+			this.looseness = looseness;
+			rebuild(objects);
+		}
+	}
+	
+	public int getMaxDepth( ) {
+		return this.maxDepth;
+	}
+	
+	/**
+	 * Stop leaves splitting below a depth (the root is depth 0); leaves
+	 * there simply grow past the split size. Lowering it on a populated
+	 * tree re-adds every object.
+	 * @param maxDepth Deepest level a leaf may be at, 0 for no limit
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if(maxDepth < 0)
+			throw new IllegalArgumentException("Max depth must not be negative");
+		
+		synchronized(this.writeLock) {
+			boolean shallower = (maxDepth != 0 && (this.maxDepth == 0 || maxDepth < this.maxDepth));
+			if(!shallower) {
+				this.maxDepth = maxDepth;
+				return;
+			}
+			
+			List objects = detachAll();
+			this.maxDepth = maxDepth;
+			rebuild(objects);
+		}
+	}
+	
+	/**
+	 * @return Leaves split since the tree was created
+	 */
+	public long getSplitCount( ) {
+		return this.splits;
+	}
+	
+	/**
+	 * @return Subtrees collapsed since the tree was created
+	 */
+	public long getMergeCount( ) {
+		return this.merges;
+	}
+	
+	void countSplit( ) {
+		this.splits++;
+	}
+	
+	void countMerge( ) {
+		this.merges++;
+	}
+	
+	/**
+	 * @return Times a point moved out of its leaf into another since
+	 * 	the tree was created
+	 */
+	public long getMigrationCount( ) {
+		return this.migrations;
+	}
+	
+	void countMigration( ) {
+		this.migrations++;
+	}
+	
+	QuadTreeNode getRoot( ) {
+		return this.root;
+	}
+	
+	/**
+	 * Monitor every structural change to the tree holds; queries
+	 * never take it.
+	 * @return The tree's write lock
+	 */
+	Object writeLock( ) {
+		return this.writeLock;
+	}
+	
 	public Rectangle getBounds( ) {
 		return this.bounds;
 	}
 	
 	public boolean geometryIntersects(Point p) {
-		return this.root.geometryIntersects(p);
+		return this.root.geometryIntersects(p, ISpatialObject.CATEGORY_SOLID);
 	}
 
 	public boolean geometryIntersects(Rectangle r) {
-		return this.root.geometryIntersects(r);
+		return geometryIntersects(r, ISpatialObject.CATEGORY_SOLID);
 	}
 	
 	public boolean geometryIntersects(ISpatialObject obj) {
-		return this.root.geometryIntersects(obj);
+		return this.root.geometryIntersects(obj, ISpatialObject.CATEGORY_SOLID);
+	}
+	
+	/**
+	 * Collision test against objects in some categories only. The plain
+	 * geometryIntersects use CATEGORY_SOLID, which leaves INoClipping
+	 * objects out.
+	 * @param p Point to test
+	 * @param categories Category mask
+	 * @return Does the point hit any object in those categories?
+	 */
+	public boolean geometryIntersects(Point p, int categories) {
+		return this.root.geometryIntersects(p, categories);
+	}
+	
+	/**
+	 * @see #geometryIntersects(Point, int)
+	 */
+	public boolean geometryIntersects(Rectangle r, int categories) {
+		if(isParallel(r))
+			return ParallelQuery.geometryIntersects(this.root, r, categories, this.parallelThreshold);
+		return this.root.geometryIntersects(r, categories);
+	}
+	
+	/**
+	 * @see #geometryIntersects(Point, int)
+	 */
+	public boolean geometryIntersects(ISpatialObject obj, int categories) {
+		return this.root.geometryIntersects(obj, categories);
+	}
+	
+	/**
+	 * Report every pair of colliding objects once, from a single walk of
+	 * the tree, rather than calling geometryIntersects(ISpatialObject)
+	 * for every object from the root. A pair collides when either
+	 * object's geometryIntersects would find the other. INoClipping
+	 * objects are left out.
+	 * 
+	 * Objects mostly meet within a leaf; only those whose bounds spill
+	 * out of their leaf, every polyline among them, are looked up in
+	 * the leaves around them, once each. See CollidingPairs.
+	 * @param visitor Receives each pair, and can stop the search
+	 * @return Number of pairs reported
+	 */
+	public int collidingPairs(ICollisionVisitor visitor) {
+		return collidingPairs(visitor, ISpatialObject.CATEGORY_SOLID);
+	}
+	
+	/**
+	 * @param categories Only pairs of objects sharing a category with
+	 * 	this mask
+	 * @see #collidingPairs(ICollisionVisitor)
+	 */
+	public int collidingPairs(ICollisionVisitor visitor, int categories) {
+		return new CollidingPairs(visitor, categories, isLoose()).search(this.root);
+	}
+	
+	/**
+	 * Move a single point object to (x, y) unless the spot is off the
+	 * tree or taken, in place of geometryContains, geometryIntersects and
+	 * translate from the root each. The collision test starts from the
+	 * object's own leaf, walking up only as far as the cell holding the
+	 * spot (loose trees test from the root), and the object is then
+	 * translated, which relocates it from the same leaf. Objects in
+	 * CATEGORY_SOLID block the move, as in geometryIntersects.
+	 * @param obj Object to move, held by this tree
+	 * @param x Horizontal position to move to
+	 * @param y Vertical position to move to
+	 * @return null if the object moved, otherwise the object in the way,
+	 * 	or obj itself if (x, y) is outside the tree
+	 */
+	public ISpatialObject tryMove(ISpatialObject obj, int x, int y) {
+		return tryTranslate(obj, x - obj.getCentroidX(), y - obj.getCentroidY());
+	}
+	
+	/**
+	 * tryMove by an offset.
+	 * @see #tryMove(ISpatialObject, int, int)
+	 */
+	public ISpatialObject tryTranslate(ISpatialObject obj, int dx, int dy) {
+		if(obj.pointCount() != 1)
+			throw new IllegalArgumentException("Only single point objects can be moved with tryMove");
+		
+		synchronized(this.writeLock) {
+			Point p = this.moveProbe;
+			p.setLocation(obj.getCentroidX() + dx, obj.getCentroidY() + dy);
+			if(!this.bounds.contains(p))
+				return obj;
+			
+			QuadTreeNode start = this.root;
+			AbstractSpatialSet parent = obj.getParent();
+			if(parent instanceof QuadTreeNode && parent.getOwner() == this)
+				start = ((QuadTreeNode)parent).around(p);
+			
+			ISpatialObject blocker = start.intersecting(p, ISpatialObject.CATEGORY_SOLID, obj);
+			if(blocker != null)
+				return blocker;
+			
+			obj.translate(dx, dy);
+			return null;
+		}
+	}
+	
+	/**
+	 * @return Current time on the tree's kinetic clock
+	 */
+	public double getTime( ) {
+		return this.time;
+	}
+	
+	/**
+	 * Start a point moving in a straight line from where it is now,
+	 * or stop it with a zero velocity. The point then moves with the
+	 * tree's clock (advanceTo) with no further calls, and the tree
+	 * relocates it only when it leaves its leaf. Points reaching the
+	 * edge of the tree stop there.
+	 * @param p Point held by this tree
+	 * @param vx Horizontal velocity, pixels per unit of time
+	 * @param vy Vertical velocity, pixels per unit of time
+	 */
+	public void setVelocity(KineticPoint p, double vx, double vy) {
+		synchronized(this.writeLock) {
+			AbstractSpatialSet parent = p.getParent();
+			if(!(parent instanceof QuadTreeNode) || parent.getOwner() != this)
+				throw new IllegalArgumentException("KineticPoint is not held by this QuadTree");
+			
+			// before it moves, so no predictive query misses it
+			((QuadTreeNode)parent).speedUp(Math.abs(vx), Math.abs(vy));
+			p.setMotion(this, vx, vy);
+			certify(p);
+		}
+	}
+	
+	/**
+	 * Move the kinetic clock forward, relocating each moving point
+	 * whose certificate fails on the way, in order of failure. With
+	 * deferred updates the failed points are queued for commitMoves
+	 * instead, which certifies them again.
+	 * @param time New time, not before getTime
+	 * @return Certificate failures processed
+	 */
+	public int advanceTo(double time) {
+		synchronized(this.writeLock) {
+			if(time < this.time)
+				throw new IllegalArgumentException("The kinetic clock can't run backwards");
+			
+			int failures = 0;
+			KineticPoint p;
+			while((p = this.certificates.poll(time)) != null) {
+				// removed since it was certified
+				AbstractSpatialSet parent = p.getParent();
+				if(!(parent instanceof QuadTreeNode) || parent.getOwner() != this)
+					continue;
+				
+				this.time = Math.max(this.time, this.certificates.polledTime());
+				// getX holds it inside, so ask whether it reached the edge
+				if(p.exitTime(this.bounds) <= this.time)
+					p.stopInside(this.bounds);
+				parent.objectMoved(p);
+				failures++;
+				
+				// deferred, so until the commit certifies it again only
+				// the edge of the tree can stop it
+				if(this.deferUpdates && p.isMoving()) {
+					double edge = p.exitTime(this.bounds);
+					if(edge > this.time)
+						this.certificates.add(p, edge);
+				}
+			}
+			
+			this.time = time;
+			return failures;
+		}
+	}
+	
+	/**
+	 * Predictive objectsInside: objects which will be inside a rectangle
+	 * at some time in [t0, t1] on the kinetic clock, supposing moving
+	 * KineticPoints keep their velocities (and stop at the edge of the
+	 * tree); everything else is taken to stay where it is. One walk
+	 * instead of a query per tick, as nodes know how fast anything below
+	 * them moves, and skip themselves if it can't reach the rectangle by
+	 * t1. Polylines are listed once per leaf, as in objectsInside.
+	 * @param objects List to add the objects to (may be null to count)
+	 * @param rect Region of interest
+	 * @param t0 Start of the window, not before getTime
+	 * @param t1 End of the window, not before t0
+	 * @return Number of objects found
+	 */
+	public int objectsInside(List objects, Rectangle rect, double t0, double t1) {
+		double now = this.time;
+		if(t0 < now || t1 < t0)
+			throw new IllegalArgumentException("The window must start at getTime or later and end after it starts");
+		return this.root.objectsInside(objects, rect.intersection(this.bounds), now, t0, t1);
+	}
+	
+	/**
+	 * Number of moving points with a certificate pending.
+	 * @return Certificate count
+	 */
+	public int certificates( ) {
+		synchronized(this.writeLock) {
+			return this.certificates.size();
+		}
+	}
+	
+	/**
+	 * (Re)compute the certificate of a moving point for the leaf now
+	 * holding it, called whenever a point joins a leaf or stays in one
+	 * after a move. Anything else is ignored. The caller must hold the
+	 * write lock.
+	 */
+	void certify(ISpatialObject obj) {
+		if(!(obj instanceof KineticPoint))
+			return;
+		
+		KineticPoint p = (KineticPoint)obj;
+		if(!p.isMoving() || p.getClock() != this)
+			return;
+		
+		AbstractSpatialSet parent = p.getParent();
+		if(!(parent instanceof QuadTreeNode))
+			return;
+		
+		// already outside, a deferred relocation will certify it again
+		double t = p.exitTime(((QuadTreeNode)parent).getLooseBounds());
+		if(t <= this.time)
+			return;
+		this.certificates.add(p, t);
 	}
 	
 	public boolean geometryContains(Point p) {
@@ -142,7 +632,7 @@ public class QuadTree implements ISpatialSet {
 	}
 
 	public boolean geometryContains(ISpatialObject obj) {
-		return this.bounds.contains(obj.getBounds());
+		return QuadTreeNode.encloses(this.bounds, obj.getMinX(), obj.getMinY(), obj.getMaxX(), obj.getMaxY());
 	}
 	
 	public boolean contains(ISpatialObject o) {
@@ -150,11 +640,92 @@ public class QuadTree implements ISpatialSet {
 	}
 	
 	public int objectsInside(List objects, Rectangle rect) {
-		return this.root.objectsInside(objects, rect);
+		return objectsInside(objects, rect, ISpatialObject.CATEGORY_ALL);
 	}
 
 	public int objectsInsideLike(List objects, Rectangle rect, Class cc) {
-		return this.root.objectsInsideLike(objects, rect, cc);
+		if(cc == null)
+			return 0;
+		if(isParallel(rect))
+			return ParallelQuery.objectsInside(this.root, objects, rect, ISpatialObject.CATEGORY_ALL, cc,
+					this.parallelThreshold);
+		return this.root.objectsInside(objects, rect, ISpatialObject.CATEGORY_ALL, cc);
+	}
+	
+	/**
+	 * objectsInside for objects sharing a category with a mask. Subtrees
+	 * holding no such object are skipped without looking at a member,
+	 * see ISpatialObject.getCategories.
+	 * @param objects List to receive the objects (may be null)
+	 * @param rect Region to search
+	 * @param categories Category mask
+	 * @return Count of objects found
+	 */
+	public int objectsInside(List objects, Rectangle rect, int categories) {
+		if(isParallel(rect))
+			return ParallelQuery.objectsInside(this.root, objects, rect, categories, null,
+					this.parallelThreshold);
+		return this.root.objectsInside(objects, rect, categories, null);
+	}
+	
+	public int getParallelThreshold( ) {
+		return this.parallelThreshold;
+	}
+	
+	/**
+	 * Opt in to fork-join range queries. objectsInside, objectsInsideLike
+	 * and geometryIntersects(Rectangle) fork a task per subtree for as
+	 * long as the part of the subtree under the query is estimated to
+	 * hold at least this many objects. The estimate scales each node's
+	 * member count by the share of it the query covers. Has no effect when
+	 * the common fork-join pool has a single thread.
+	 * @param threshold Objects per task, 0 keeps every query serial
+	 */
+	public void setParallelThreshold(int threshold) {
+		this.parallelThreshold = Math.max(threshold, 0);
+	}
+	
+	private boolean isParallel(Rectangle rect) {
+		// a one thread pool only adds hand-off costs
+		return this.parallelThreshold > 0
+			&& ForkJoinPool.getCommonPoolParallelism() > 1
+			&& ParallelQuery.estimate(this.root, rect) >= this.parallelThreshold;
+	}
+	
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle rect) {
+		return this.root.visitInside(visitor, rect, ISpatialObject.CATEGORY_ALL, null);
+	}
+	
+	public boolean visitInsideLike(ISpatialVisitor visitor, Rectangle rect, Class cc) {
+		return this.root.visitInside(visitor, rect, ISpatialObject.CATEGORY_ALL, cc);
+	}
+	
+	/**
+	 * visitInside for objects sharing a category with a mask.
+	 * @see #objectsInside(List, Rectangle, int)
+	 */
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle rect, int categories) {
+		return this.root.visitInside(visitor, rect, categories, null);
+	}
+	
+	/**
+	 * Find the k objects nearest to a point, best-first. Points are
+	 * measured to their position, AbstractPolylines to their nearest
+	 * segment and anything else to its bounding box. INoClipping
+	 * objects are never returned.
+	 * 
+	 * If a null list is passed, nearest still runs, but will just
+	 * return the count of objects found.
+	 * @param objects List to receive the objects, nearest first (may be null)
+	 * @param p Point to search from
+	 * @param k Maximum number of objects to find
+	 * @param cc Class the objects must be, as in objectsInsideLike (may be null)
+	 * @return Count of objects found, at most k
+	 */
+	public int nearest(List objects, Point p, int k, Class cc) {
+		if(k <= 0)
+			return 0;
+		return new NearestSearch(k).search(this.root, objects, p, cc);
 	}
 	
 	public boolean add(ISpatialObject obj) {
@@ -166,7 +737,11 @@ public class QuadTree implements ISpatialSet {
 	}
 
 	public void clear( ) {
+		this.pendingMoves.clear();
 		this.root.clear();
+		synchronized(this.writeLock) {
+			this.certificates.clear();
+		}
 	}
 	
 	public void paint(Graphics g, Rectangle viewport) {
@@ -184,4 +759,151 @@ public class QuadTree implements ISpatialSet {
 	public void toList(List objects) {
 		this.root.toList(objects);
 	}
+	
+	public boolean isSegmentIndexing() {
+		return this.segmentIndexing;
+	}
+	
+	/**
+	 * Switch polyline segment indexing on or off. Changing the mode on a
+	 * populated tree re-adds every object. PackedQuadTree snapshots keep
+	 * testing polylines whole.
+	 * @param segmentIndexing Index the segments of each AbstractPolyline?
+	 */
+	public void setSegmentIndexing(boolean segmentIndexing) {
+		synchronized(this.writeLock) {
+			if(this.segmentIndexing == segmentIndexing)
+				return;
+			
+			List objects = detachAll();
+			this.segmentIndexing = segmentIndexing;
+			rebuild(objects);
+		}
+	}
+	
+	/**
+	 * Remove every object, once each, for a change of mode which needs
+	 * them all re-added. The caller must hold the write lock.
+	 * @return The distinct objects removed
+	 */
+	private List detachAll( ) {
+		List objects = new ArrayList();
+		this.root.toList(objects);
+		Map unique = new IdentityHashMap();
+		List detached = new ArrayList();
+		for(int ii = 0; ii < objects.size(); ii++) {
+			ISpatialObject obj = (ISpatialObject)objects.get(ii);
+			if(unique.put(obj, obj) == null) {
+				this.root.remove(obj);
+				detached.add(obj);
+			}
+		}
+		return detached;
+	}
+	
+	/**
+	 * Add objects from detachAll back to a fresh root, built with the
+	 * tree's current settings. The caller must hold the write lock.
+	 */
+	private void rebuild(List objects) {
+		this.root = new QuadTreeNode(this, null, this.bounds, this.splitSize);
+		for(int ii = 0; ii < objects.size(); ii++)
+			this.root.add((ISpatialObject)objects.get(ii));
+	}
+	
+	public boolean isNodePooling( ) {
+		return this.nodePooling;
+	}
+	
+	/**
+	 * Recycle the nodes dropped by collapses for later splits, instead
+	 * of leaving them to the garbage collector, up to
+	 * QUADTREE_NODE_POOL_LIMIT nodes. Off by default: a query running
+	 * alongside an update may find a collapsed node already reused
+	 * elsewhere, and so miss objects, so only turn it on for trees
+	 * whose queries and updates run on one thread (or never overlap).
+	 * @param nodePooling Pool dropped nodes?
+	 */
+	public void setNodePooling(boolean nodePooling) {
+		synchronized(this.writeLock) {
+			this.nodePooling = nodePooling;
+			if(!nodePooling) {
+				this.freeNodes = null;
+				this.freeCount = 0;
+			}
+		}
+	}
+	
+	/**
+	 * A node from the pool, emptied by the collapse which dropped it.
+	 * The caller must hold the write lock.
+	 * @return The node, or null if the pool is empty
+	 */
+	QuadTreeNode takeNode( ) {
+		QuadTreeNode node = this.freeNodes;
+		if(node != null) {
+			this.freeNodes = node.nextFree;
+			node.nextFree = null;
+			this.freeCount--;
+		}
+		return node;
+	}
+	
+	/**
+	 * Pool a node dropped by a collapse, if there's room. The caller
+	 * must hold the write lock.
+	 */
+	void releaseNode(QuadTreeNode node) {
+		if(this.freeCount >= QUADTREE_NODE_POOL_LIMIT)
+			return;
+		node.nextFree = this.freeNodes;
+		this.freeNodes = node;
+		this.freeCount++;
+	}
+	
+	public boolean isDeferredUpdates() {
+		return deferUpdates;
+	}
+
+	/**
+	 * Switch between immediate and deferred kinetic updates. Turning
+	 * deferral off commits anything still queued. Movers read the flag
+	 * without the lock, see QuadTreeNode.objectMoved.
+	 * @param deferUpdates Queue moves until commitMoves?
+	 */
+	public void setDeferredUpdates(boolean deferUpdates) {
+		synchronized(this.writeLock) {
+			this.deferUpdates = deferUpdates;
+			if(!deferUpdates)
+				commitMoves();
+		}
+	}
+	
+	/**
+	 * Number of distinct objects waiting on commitMoves.
+	 * @return Queued object count
+	 */
+	public int pendingMoves( ) {
+		return this.pendingMoves.size();
+	}
+	
+	/**
+	 * Queue a moved object for the next commit, once per object.
+	 * @param obj Object which moved
+	 */
+	void deferMove(ISpatialObject obj) {
+		this.pendingMoves.add(obj);
+	}
+	
+	/**
+	 * Reindex every object queued since the last commit, then balance
+	 * each node that lost a member once, children before parents so a
+	 * collapse never works on a detached subtree. See DeferredMoves.
+	 * @return Number of objects processed
+	 */
+	public int commitMoves( ) {
+		synchronized(this.writeLock) {
+			return this.pendingMoves.commit(this);
+		}
+	}
 }
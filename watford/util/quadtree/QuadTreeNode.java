@@ -16,8 +16,8 @@ import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Observable;
 
 /**
  * QuadTreeNode has the meat and potatoes of the QuadTree class. The type of
@@ -27,20 +27,109 @@ import java.util.Observable;
  * When the number of objects inside the node reaches the max split size
  * it divides into quadrants and populates its new child nodes.
  * 
- * The node recieves updates from the kinetic objects inside of it and notifies
+ * The node recieves objectMoved calls from the kinetic objects inside of it and notifies
  * its parent if an object moves outside its bounds so that the parent can
  * decide to balance itself.
  * 
+ * Concurrency: queries never lock. A leaf's members are an immutable array
+ * which writers replace (copy-on-write) and the children array is only
+ * ever published fully built, both through volatile fields. Writers (add,
+ * remove, clear, balance and kinetic updates) serialize on the tree's
+ * write lock. A reader therefore always walks a consistent snapshot of
+ * each node it visits; an object migrating between leaves is added to its
+ * new leaf before it leaves the old one, so it may be seen twice by a
+ * concurrent query but is never missed. Object positions themselves are
+ * read as they are at the time.
+ * 
+ * Readers take the member array before they look at the children. A
+ * split publishes the children and only then empties the old leaf, so
+ * a reader which saw no children still has every member, and inner
+ * nodes hold no members at all. Points in a loose leaf's margin which
+ * none of its children take join their new leaves before the split is
+ * published. A collapse publishes the gathered
+ * members before dropping the children, and a reader which found no
+ * children but an empty array reads the members again (see settled).
+ * 
+ * With segment indexing (QuadTree.setSegmentIndexing) a leaf also keeps,
+ * for each AbstractPolyline member, the runs of segments which cross it,
+ * and collision tests in the leaf only look at those segments. A polyline
+ * whose shape reaches a leaf without any segment crossing it is not
+ * stored there at all. The runs are published before the member and
+ * dropped after it, and a member without runs falls back to testing the
+ * whole line, so readers never get a wrong answer from a stale pair.
+ * 
+ * A loose tree (QuadTree.setLooseness) gives each node a second, larger
+ * rectangle: its cell grown on every side, kept inside the tree. Objects
+ * are still added by cell, but a point only leaves its leaf once it
+ * leaves the loose rectangle, so every query prunes by the loose
+ * rectangle instead of the cell. Polylines are always kept in exactly
+ * the leaves whose cells they cross.
+ * 
+ * Every node keeps the number of leaf members below it (a polyline
+ * counts once per leaf, as in size), adjusted along the path to the
+ * root whenever a leaf gains or loses one. size and isEmpty read it
+ * directly, and a count only objectsInside takes it whole for nodes
+ * lying inside the query.
+ * 
+ * Nodes also keep the union of their members' categories and of one
+ * hashed bit per member class. The masks are widened before a member is
+ * published and only narrowed after it is gone, so a reader may visit a
+ * subtree needlessly but never skips one holding a match.
+ * 
+ * Likewise nodes keep the largest horizontal and vertical speeds of the
+ * KineticPoints below them, widened before a point joins or speeds up,
+ * so the predictive objectsInside can tell how far outside the loose
+ * rectangle anything below might have drifted by a given time.
+ * 
+ * With node pooling (QuadTree.setNodePooling) a collapse hands the
+ * dropped nodes, their rectangles and child arrays back to the tree and
+ * the next split takes them again instead of allocating. This gives up
+ * the snapshot guarantee above for a reader still inside a subtree as it
+ * collapses, so it is only for trees whose queries don't run alongside
+ * updates.
+ * 
  * @author Christopher A. Watford
  */
 public class QuadTreeNode extends AbstractSpatialSet {
+	private static final ISpatialObject[] NO_MEMBERS = new ISpatialObject[0];
+	private static final Segments[] NO_SEGMENTS = new Segments[0];
+	private static final byte HELD = 1, KEPT = 2;
+	
+	/**
+	 * The segments of one polyline member crossing a leaf.
+	 */
+	private static final class Segments {
+		final AbstractPolyline line;
+		final int[] runs;
+		
+		Segments(AbstractPolyline line, int[] runs) {
+			this.line = line;
+			this.runs = runs;
+		}
+	}
+	
 	private Rectangle bounds;
-	private List leafMembers;
+	private Rectangle loose;
+	private volatile ISpatialObject[] leafMembers;
+	private volatile Segments[] leafSegments;
 	private QuadTree tree;
 	private QuadTreeNode parent;
-	private QuadTreeNode[] children;
+	private int depth;
+	private volatile QuadTreeNode[] children;
+	private volatile int count;
+	private volatile int categories;
+	private volatile int classes;
+	private volatile double speedX;
+	private volatile double speedY;
 	private int splitAfter;
+	private int underfull;
+	/** Waiting on a commit's balance, see DeferredMoves */
+	boolean unbalanced;
+	/** Whether a moving line held or keeps us, see relocateLine */
+	private byte lineMark;
 	private Color c;
+	private QuadTreeNode[] spare;
+	QuadTreeNode nextFree;
 	
 	/**
 	 * 
@@ -50,7 +139,7 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	 * @param splitSize
 	 */
 	public QuadTreeNode(QuadTree tree, QuadTreeNode parent, Rectangle bounds, int splitSize) {
-		this(tree, parent, bounds, splitSize, new ArrayList(splitSize));
+		this(tree, parent, bounds, splitSize, null);
 	}
 	
 	/**
@@ -64,25 +153,48 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	public QuadTreeNode(QuadTree tree, QuadTreeNode parent, Rectangle bounds, int splitSize, List members) {
 		this.tree = tree;
 		this.bounds = bounds;
-		this.leafMembers = members;
+		this.leafMembers = (members == null || members.isEmpty())
+			? NO_MEMBERS : (ISpatialObject[])members.toArray(new ISpatialObject[members.size()]);
+		this.leafSegments = NO_SEGMENTS;
+		this.count = this.leafMembers.length;
 		this.splitAfter = splitSize;
 		this.children = null;
 		this.parent = parent;
-		this.c = new Color((int)(Math.random()*255), (int)(Math.random()*255), (int)(Math.random()*255));
+		this.depth = (parent == null) ? 0 : parent.depth + 1;
+		this.loose = loosen(bounds, null);
+		for(int ii = 0; ii < this.leafMembers.length; ii++) {
+			this.categories |= this.leafMembers[ii].getCategories();
+			this.classes |= classBit(this.leafMembers[ii].getClass());
+			this.speedX = Math.max(this.speedX, speedX(this.leafMembers[ii]));
+			this.speedY = Math.max(this.speedY, speedY(this.leafMembers[ii]));
+		}
 	}
 
-	public boolean isEmpty( ) {
-		if(this.children == null)
-			return this.leafMembers.isEmpty();
-		
-		synchronized(this.children) {
-			for(int ii = 0; ii < this.children.length; ii++) {
-				if(!this.children[ii].isEmpty())
-					return false; 
-			}
-		}
+	/**
+	 * Grow a cell by the tree's looseness, half the extra on each side,
+	 * and keep it inside the tree.
+	 * @param into Rectangle to reuse, or null to allocate one
+	 * @return The loose rectangle, the cell itself for a tight tree
+	 */
+	private Rectangle loosen(Rectangle cell, Rectangle into) {
+		double factor = this.tree.getLooseness();
+		int dx = (int)(cell.width * (factor - 1) / 2);
+		int dy = (int)(cell.height * (factor - 1) / 2);
+		if(this.parent == null || (dx == 0 && dy == 0))
+			return cell;
 		
-		return true;
+		Rectangle tb = this.tree.getBounds();
+		int x0 = Math.max(cell.x - dx, tb.x), y0 = Math.max(cell.y - dy, tb.y);
+		int x1 = Math.min(cell.x + cell.width + dx, tb.x + tb.width);
+		int y1 = Math.min(cell.y + cell.height + dy, tb.y + tb.height);
+		if(into == null)
+			return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+		into.setBounds(x0, y0, x1 - x0, y1 - y0);
+		return into;
+	}
+	
+	public boolean isEmpty( ) {
+		return this.count == 0;
 	}
 	
 	public boolean isLeaf( ) {
@@ -90,16 +202,116 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	}
 	
 	public int size( ) {
-		if(this.children == null)
-			return this.leafMembers.size();
+		return this.count;
+	}
+	
+	/**
+	 * Add to the member count of this node and every ancestor. The
+	 * caller must hold the tree's write lock.
+	 * @param delta Leaf members gained, negative for members lost
+	 */
+	private void adjust(int delta) {
+		for(QuadTreeNode node = this; node != null; node = node.parent)
+			node.count += delta;
+	}
+	
+	/**
+	 * Widen the category and class masks of this node and its ancestors
+	 * for a new leaf member. Called before the member is published, so
+	 * no reader prunes a subtree holding it.
+	 */
+	private void include(ISpatialObject obj) {
+		int cats = obj.getCategories(), cls = classBit(obj.getClass());
+		for(QuadTreeNode node = this; node != null; node = node.parent) {
+			if((node.categories & cats) == cats && (node.classes & cls) == cls)
+				break;
+			node.categories |= cats;
+			node.classes |= cls;
+		}
 		
-		int size = 0;
-		size += this.children[QuadTree.QUADTREENODE_NW].size();
-		size += this.children[QuadTree.QUADTREENODE_NE].size();
-		size += this.children[QuadTree.QUADTREENODE_SW].size();
-		size += this.children[QuadTree.QUADTREENODE_SE].size();
+		if(obj instanceof KineticPoint)
+			speedUp(speedX(obj), speedY(obj));
+	}
+	
+	/**
+	 * Widen the speeds of this node and its ancestors, before a member
+	 * starts moving that fast.
+	 */
+	void speedUp(double sx, double sy) {
+		for(QuadTreeNode node = this; node != null; node = node.parent) {
+			if(node.speedX >= sx && node.speedY >= sy)
+				break;
+			node.speedX = Math.max(node.speedX, sx);
+			node.speedY = Math.max(node.speedY, sy);
+		}
+	}
+	
+	private static double speedX(ISpatialObject o) {
+		return (o instanceof KineticPoint) ? Math.abs(((KineticPoint)o).getVelocityX()) : 0;
+	}
+	
+	private static double speedY(ISpatialObject o) {
+		return (o instanceof KineticPoint) ? Math.abs(((KineticPoint)o).getVelocityY()) : 0;
+	}
+	
+	/**
+	 * Recompute the masks and speeds of a leaf which lost members, and
+	 * of its ancestors for as long as they change.
+	 */
+	private void narrow( ) {
+		int cats = 0, cls = 0;
+		double sx = 0, sy = 0;
+		ISpatialObject[] members = this.leafMembers;
+		for(int ii = 0; ii < members.length; ii++) {
+			cats |= members[ii].getCategories();
+			cls |= classBit(members[ii].getClass());
+			sx = Math.max(sx, speedX(members[ii]));
+			sy = Math.max(sy, speedY(members[ii]));
+		}
 		
-		return size;
+		QuadTreeNode node = this;
+		while(node.categories != cats || node.classes != cls
+				|| node.speedX != sx || node.speedY != sy) {
+			node.categories = cats;
+			node.classes = cls;
+			node.speedX = sx;
+			node.speedY = sy;
+			
+			node = node.parent;
+			if(node == null)
+				break;
+			
+			cats = 0;
+			cls = 0;
+			sx = 0;
+			sy = 0;
+			for(int ii = 0; ii < node.children.length; ii++) {
+				cats |= node.children[ii].categories;
+				cls |= node.children[ii].classes;
+				sx = Math.max(sx, node.children[ii].speedX);
+				sy = Math.max(sy, node.children[ii].speedY);
+			}
+		}
+	}
+	
+	/**
+	 * Could anything below us share a category with the mask, and be
+	 * of the class with this bit (0 for any class)?
+	 */
+	boolean holds(int categories, int classBit) {
+		return (this.categories & categories) != 0 && (this.classes & classBit) == classBit;
+	}
+	
+	private static boolean matches(ISpatialObject o, int categories, Class cl) {
+		return (o.getCategories() & categories) != 0 && (cl == null || o.getClass() == cl);
+	}
+	
+	/**
+	 * Classes share 32 bits by hash, a clash only costs some pruning.
+	 */
+	static int classBit(Class cl) {
+		int h = cl.hashCode();
+		return 1 << ((h ^ (h >>> 16)) & 31);
 	}
 	
 	public boolean geometryContains(Point p) {
@@ -111,18 +323,18 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	}
 	
 	public boolean geometryContains(ISpatialObject obj) {
-		return this.bounds.contains(obj.getBounds());
+		return encloses(this.bounds, obj.getMinX(), obj.getMinY(), obj.getMaxX(), obj.getMaxY());
 	}
 	
 	public boolean contains(ISpatialObject o) {
-		if(this.children == null)
-			return this.leafMembers.contains(o);
+		ISpatialObject[] members = this.leafMembers;
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null)
+			return indexOf(settled(members), o) >= 0;
 		
-		synchronized(this.children) {
-			for(int ii = 0; ii < this.children.length; ii++) {
-				if(this.children[ii].contains(o))
-					return true;
-			}
+		for(int ii = 0; ii < nodes.length; ii++) {
+			if(nodes[ii].contains(o))
+				return true;
 		}
 		
 		return false;
@@ -133,103 +345,149 @@ public class QuadTreeNode extends AbstractSpatialSet {
 			return;
 		
 		// recently rewritten to be tail recursize (kinda, no return)
-		if(this.children == null) {
-			ll.addAll(this.leafMembers);
+		ISpatialObject[] members = this.leafMembers;
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
+			members = settled(members);
+			for(int ii = 0; ii < members.length; ii++)
+				ll.add(members[ii]);
 		} else {
-			synchronized(this.children) {
-				this.children[QuadTree.QUADTREENODE_NW].toList(ll);
-				this.children[QuadTree.QUADTREENODE_SW].toList(ll);
-				this.children[QuadTree.QUADTREENODE_SE].toList(ll);
-				this.children[QuadTree.QUADTREENODE_NE].toList(ll);
-			}
+			nodes[QuadTree.QUADTREENODE_NW].toList(ll);
+			nodes[QuadTree.QUADTREENODE_SW].toList(ll);
+			nodes[QuadTree.QUADTREENODE_SE].toList(ll);
+			nodes[QuadTree.QUADTREENODE_NE].toList(ll);
 		}
 	}
 
-	public synchronized boolean add(ISpatialObject obj) {
-		if(!obj.containedPartiallyBy(this.bounds))
+	public boolean add(ISpatialObject obj) {
+		synchronized(this.tree.writeLock()) {
+			return addLocked(obj);
+		}
+	}
+	
+	private boolean addLocked(ISpatialObject obj) {
+		if(!reaches(this.bounds, obj))
 			return false;
 		
 		if(this.children == null)
 		{
 			// shortcut
-			if(obj.hasParent(this))
+			if(obj.hasParent(this)) {
+				// a moving polyline still crosses us, but maybe
+				// with different segments
+				if(indexesSegments(obj)) {
+					int[] runs = crossing(obj);
+					if(runs.length == 0)
+						removeMember(obj);
+					else
+						putSegments(obj, runs);
+				}
 				return true;
+			}
 			
-			if(this.leafMembers.size() == this.splitAfter) {
-				// add the point to ourselves before we split
-				// the algo will add the point to the correct child afterwards
-				this.leafMembers.add(obj);
-				
-				// split the leaf
-				int halfWidth = this.bounds.width / 2;
-				int halfHeight = this.bounds.height / 2;
-				int x = this.bounds.x, y = this.bounds.y;
-				
-				int fudgeWidth = this.bounds.width - (halfWidth * 2);
-				int fudgeHeight = this.bounds.height - (halfHeight * 2);
+			if(this.leafMembers.length >= this.splitAfter && canSplit()) {
+				// the new object joins the current members, the algo
+				// will add it to the correct child afterwards
+				ISpatialObject[] members = append(this.leafMembers, obj);
 				
-				Rectangle nw = new Rectangle(x, y, halfWidth, halfHeight),
-					ne = new Rectangle(x + halfWidth, y, halfWidth + fudgeWidth, halfHeight),
-					se = new Rectangle(x + halfWidth, y + halfHeight, halfWidth + fudgeWidth, halfHeight + fudgeHeight),
-					sw = new Rectangle(x, y + halfHeight, halfWidth, halfHeight + fudgeHeight);
+				// the members are counted again as the children take them
+				adjust(-this.leafMembers.length);
 				
-				// don't set up this.children immediately
-				QuadTreeNode[] childNodes = new QuadTreeNode[4];
-				childNodes[QuadTree.QUADTREENODE_NW] =
-					new QuadTreeNode(this.tree, this, nw, this.splitAfter);
-				childNodes[QuadTree.QUADTREENODE_NE] = 
-					new QuadTreeNode(this.tree, this, ne, this.splitAfter);
-				childNodes[QuadTree.QUADTREENODE_SE] = 
-					new QuadTreeNode(this.tree, this, se, this.splitAfter);
-				childNodes[QuadTree.QUADTREENODE_SW] =
-					new QuadTreeNode(this.tree, this, sw, this.splitAfter);
+				// split the leaf, but don't set up this.children immediately
+				QuadTreeNode[] childNodes = newChildren();
+				Rectangle nw = childNodes[QuadTree.QUADTREENODE_NW].bounds,
+					ne = childNodes[QuadTree.QUADTREENODE_NE].bounds,
+					se = childNodes[QuadTree.QUADTREENODE_SE].bounds,
+					sw = childNodes[QuadTree.QUADTREENODE_SW].bounds;
+				List strays = null;
 				
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject oo = (ISpatialObject)this.leafMembers.get(ii);
+				for(int ii = 0; ii < members.length; ii++) {
+					ISpatialObject oo = members[ii];
+					boolean placed = false;
 					
-					if(oo.containedPartiallyBy(nw))
-						childNodes[QuadTree.QUADTREENODE_NW].add(oo);
+					if(reaches(nw, oo))
+						placed |= childNodes[QuadTree.QUADTREENODE_NW].addLocked(oo);
 										
-					if(oo.containedPartiallyBy(ne))
-						childNodes[QuadTree.QUADTREENODE_NE].add(oo);
+					if(reaches(ne, oo))
+						placed |= childNodes[QuadTree.QUADTREENODE_NE].addLocked(oo);
 					
-					if(oo.containedPartiallyBy(se))
-						childNodes[QuadTree.QUADTREENODE_SE].add(oo);
+					if(reaches(se, oo))
+						placed |= childNodes[QuadTree.QUADTREENODE_SE].addLocked(oo);
 					
-					if(oo.containedPartiallyBy(sw))
-						childNodes[QuadTree.QUADTREENODE_SW].add(oo);
+					if(reaches(sw, oo))
+						placed |= childNodes[QuadTree.QUADTREENODE_SW].addLocked(oo);
+					
+					if(!placed && this.tree.isDeferredUpdates()) {
+						// moved away while updates are deferred, keep
+						// reporting to us and let the commit find it a home
+						this.tree.deferMove(oo);
+					} else if(!placed && oo.pointCount() == 1) {
+						// a point in our loose margin, outside our cell
+						if(strays == null)
+							strays = new ArrayList();
+						strays.add(oo);
+					} else {
+						// we're no longer a leaf, don't leave polylines
+						// reporting to us
+						oo.deleteParent(this);
+					}
 				}
 				
-				this.leafMembers.clear();
+				// strays join the leaves which hold them now, while we
+				// still list them; see adopt
+				for(int ii = 0; strays != null && ii < strays.size(); ii++) {
+					ISpatialObject oo = (ISpatialObject)strays.get(ii);
+					QuadTreeNode node = bounding(this.parent, oo);
+					if(node != null)
+						node.adopt(oo);
+				}
+				
+				// publish the finished children, then let go of the old
+				// members; readers read them before the children, so
+				// one which finds no children still has all of them
 				this.children = childNodes;
+				this.leafMembers = NO_MEMBERS;
+				this.leafSegments = NO_SEGMENTS;
+				this.underfull = 0;
+				this.tree.countSplit();
+				
+				for(int ii = 0; strays != null && ii < strays.size(); ii++)
+					((ISpatialObject)strays.get(ii)).deleteParent(this);
 				
 				return true;
 			} else {
-				obj.addParent(this);
-				boolean added = this.leafMembers.add(obj); 
-				return added;
+				if(indexesSegments(obj)) {
+					int[] runs = crossing(obj);
+					
+					// the line's shape reaches us, none of its segments do
+					if(runs.length == 0)
+						return true;
+					putSegments(obj, runs);
+				}
+				
+				join(obj);
+				return true;
 			}
 		} else {
 			if(obj.pointCount() == 1) {
-				Point p = obj.centroid();
-				if(p.x < this.bounds.x + this.bounds.width/2) {
-					if(p.y < this.bounds.y + this.bounds.height/2) {
-						return this.children[QuadTree.QUADTREENODE_NW].add(obj);
+				int px = obj.getCentroidX(), py = obj.getCentroidY();
+				if(px < this.bounds.x + this.bounds.width/2) {
+					if(py < this.bounds.y + this.bounds.height/2) {
+						return this.children[QuadTree.QUADTREENODE_NW].addLocked(obj);
 					} else {
-						return this.children[QuadTree.QUADTREENODE_SW].add(obj);
+						return this.children[QuadTree.QUADTREENODE_SW].addLocked(obj);
 					}
 				} else {
-					if(p.y < this.bounds.y + this.bounds.height/2) {
-						return this.children[QuadTree.QUADTREENODE_NE].add(obj);
+					if(py < this.bounds.y + this.bounds.height/2) {
+						return this.children[QuadTree.QUADTREENODE_NE].addLocked(obj);
 					} else {
-						return this.children[QuadTree.QUADTREENODE_SE].add(obj);
+						return this.children[QuadTree.QUADTREENODE_SE].addLocked(obj);
 					}				
 				}				
 			} else {
 				for(int ii = 0; ii < this.children.length; ii++) {
-					if(obj.containedPartiallyBy(this.children[ii].getBounds()))
-						if(!this.children[ii].add(obj))
+					if(reaches(this.children[ii].getBounds(), obj))
+						if(!this.children[ii].addLocked(obj))
 							return false;
 				}
 			}
@@ -238,78 +496,367 @@ public class QuadTreeNode extends AbstractSpatialSet {
 		}
 	}
 	
+	/**
+	 * Make an object one of our leaf members.
+	 */
+	private void join(ISpatialObject obj) {
+		obj.addParent(this);
+		include(obj);
+		this.leafMembers = append(this.leafMembers, obj);
+		adjust(1);
+		this.tree.certify(obj);
+	}
+	
+	/**
+	 * Take a point which strayed from a splitting leaf into the leaf
+	 * below us which holds it. That leaf doesn't split now, even if it
+	 * is full: its own strays could belong to the leaf still splitting.
+	 * It splits on its next add instead.
+	 */
+	private void adopt(ISpatialObject obj) {
+		int px = obj.getCentroidX(), py = obj.getCentroidY();
+		QuadTreeNode node = this;
+		QuadTreeNode[] nodes;
+		while((nodes = node.children) != null) {
+			Rectangle b = node.bounds;
+			boolean west = px < b.x + b.width/2, north = py < b.y + b.height/2;
+			node = nodes[north ? (west ? QuadTree.QUADTREENODE_NW : QuadTree.QUADTREENODE_NE)
+				: (west ? QuadTree.QUADTREENODE_SW : QuadTree.QUADTREENODE_SE)];
+		}
+		node.join(obj);
+	}
+	
+	/**
+	 * Can this leaf split, or is it at the tree's maximum depth? Like
+	 * BulkLoader, leaves narrower than two units never split: one of
+	 * their children would be the leaf again, so objects stacked on a
+	 * single cell would split it forever. They overflow the bucket
+	 * instead.
+	 */
+	private boolean canSplit( ) {
+		if(this.bounds.width < 2 || this.bounds.height < 2)
+			return false;
+		int maxDepth = this.tree.getMaxDepth();
+		return (maxDepth == 0 || this.depth < maxDepth);
+	}
+	
+	/**
+	 * Build (but don't attach) the four quadrant children of this node.
+	 * Odd widths and heights give the extra pixel to the east and south.
+	 * @return Children indexed by the QuadTree.QUADTREENODE_ constants
+	 */
+	QuadTreeNode[] newChildren( ) {
+		int halfWidth = this.bounds.width / 2;
+		int halfHeight = this.bounds.height / 2;
+		int x = this.bounds.x, y = this.bounds.y;
+		
+		int fudgeWidth = this.bounds.width - (halfWidth * 2);
+		int fudgeHeight = this.bounds.height - (halfHeight * 2);
+		
+		QuadTreeNode[] childNodes = this.spare;
+		this.spare = null;
+		if(childNodes == null)
+			childNodes = new QuadTreeNode[4];
+		childNodes[QuadTree.QUADTREENODE_NW] =
+			newChild(x, y, halfWidth, halfHeight);
+		childNodes[QuadTree.QUADTREENODE_NE] = 
+			newChild(x + halfWidth, y, halfWidth + fudgeWidth, halfHeight);
+		childNodes[QuadTree.QUADTREENODE_SE] = 
+			newChild(x + halfWidth, y + halfHeight, halfWidth + fudgeWidth, halfHeight + fudgeHeight);
+		childNodes[QuadTree.QUADTREENODE_SW] =
+			newChild(x, y + halfHeight, halfWidth, halfHeight + fudgeHeight);
+		
+		return childNodes;
+	}
+	
+	/**
+	 * A fresh leaf under us, from the tree's node pool if it has one.
+	 */
+	private QuadTreeNode newChild(int x, int y, int width, int height) {
+		QuadTreeNode node = this.tree.takeNode();
+		if(node == null)
+			return new QuadTreeNode(this.tree, this, new Rectangle(x, y, width, height), this.splitAfter);
+		
+		// pooled nodes come back empty, see release
+		boolean tight = (node.loose == node.bounds);
+		node.parent = this;
+		node.depth = this.depth + 1;
+		node.splitAfter = this.splitAfter;
+		node.bounds.setBounds(x, y, width, height);
+		node.loose = loosen(node.bounds, tight ? null : node.loose);
+		return node;
+	}
+	
+	/**
+	 * Empty a subtree dropped by a collapse and hand its nodes to the
+	 * tree's pool, keeping our child array for our next split. The
+	 * caller must hold the write lock.
+	 */
+	private void release(QuadTreeNode[] nodes) {
+		for(int ii = 0; ii < nodes.length; ii++) {
+			QuadTreeNode node = nodes[ii];
+			QuadTreeNode[] below = node.children;
+			if(below != null) {
+				node.release(below);
+				node.children = null;
+			}
+			node.leafMembers = NO_MEMBERS;
+			node.leafSegments = NO_SEGMENTS;
+			node.count = 0;
+			node.categories = 0;
+			node.classes = 0;
+			node.speedX = 0;
+			node.speedY = 0;
+			node.underfull = 0;
+			node.parent = null;
+			this.tree.releaseNode(node);
+			nodes[ii] = null;
+		}
+		this.spare = nodes;
+	}
+	
+	/**
+	 * Fill in a node which nobody else can see yet, used by BulkLoader.
+	 * Members get no parent link, see linkMembers.
+	 * @param members Leaf members, or null for an inner node
+	 * @param childNodes Children from newChildren, or null for a leaf
+	 */
+	void build(ISpatialObject[] members, QuadTreeNode[] childNodes) {
+		if(members != null && this.tree.isSegmentIndexing())
+			members = indexSegments(members);
+		
+		this.leafMembers = (members == null) ? NO_MEMBERS : members;
+		this.children = childNodes;
+	}
+	
+	/**
+	 * Work out the segment runs of every polyline in a new member array
+	 * and publish them.
+	 * @param members Members of a leaf about to be published
+	 * @return The members, less polylines with no segment crossing us
+	 */
+	private ISpatialObject[] indexSegments(ISpatialObject[] members) {
+		List segments = new ArrayList();
+		List kept = new ArrayList(members.length);
+		for(int ii = 0; ii < members.length; ii++) {
+			ISpatialObject o = members[ii];
+			if(o instanceof AbstractPolyline) {
+				int[] runs = crossing(o);
+				if(runs.length == 0)
+					continue;
+				segments.add(new Segments((AbstractPolyline)o, runs));
+			}
+			kept.add(o);
+		}
+		
+		this.leafSegments = segments.isEmpty()
+			? NO_SEGMENTS : (Segments[])segments.toArray(new Segments[segments.size()]);
+		return (kept.size() == members.length)
+			? members : (ISpatialObject[])kept.toArray(new ISpatialObject[kept.size()]);
+	}
+	
+	/**
+	 * Point every leaf member below us back at its leaf, count them
+	 * and gather their masks, once the structure is finished. Single threaded, as
+	 * polylines keep a plain parent array.
+	 * @return Leaf members below us
+	 */
+	int linkMembers( ) {
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
+			ISpatialObject[] members = this.leafMembers;
+			int cats = 0, cls = 0;
+			double sx = 0, sy = 0;
+			for(int ii = 0; ii < members.length; ii++) {
+				members[ii].addParent(this);
+				cats |= members[ii].getCategories();
+				cls |= classBit(members[ii].getClass());
+				sx = Math.max(sx, speedX(members[ii]));
+				sy = Math.max(sy, speedY(members[ii]));
+			}
+			this.count = members.length;
+			this.categories = cats;
+			this.classes = cls;
+			this.speedX = sx;
+			this.speedY = sy;
+		} else {
+			int cnt = 0, cats = 0, cls = 0;
+			double sx = 0, sy = 0;
+			for(int ii = 0; ii < nodes.length; ii++) {
+				cnt += nodes[ii].linkMembers();
+				cats |= nodes[ii].categories;
+				cls |= nodes[ii].classes;
+				sx = Math.max(sx, nodes[ii].speedX);
+				sy = Math.max(sy, nodes[ii].speedY);
+			}
+			this.count = cnt;
+			this.categories = cats;
+			this.classes = cls;
+			this.speedX = sx;
+			this.speedY = sy;
+		}
+		return this.count;
+	}
+	
 	public int objectsInside(List objects, Rectangle rect) {
-		if(!this.bounds.contains(rect) && !this.bounds.intersects(rect) ) {
+		return objectsInside(objects, rect, ISpatialObject.CATEGORY_ALL, null);
+	}
+	
+	public int objectsInsideLike(List objects, Rectangle rect, Class cl) {
+		if(cl == null)
+			return 0;
+		return objectsInside(objects, rect, ISpatialObject.CATEGORY_ALL, cl);
+	}
+	
+	/**
+	 * objectsInside for objects sharing a category with a mask, and
+	 * optionally of one class. Subtrees holding neither are skipped.
+	 * @param categories Category mask, CATEGORY_ALL for any
+	 * @param cl Class filter, or null for every class
+	 */
+	public int objectsInside(List objects, Rectangle rect, int categories, Class cl) {
+		if(!this.loose.contains(rect) && !this.loose.intersects(rect) ) {
 			return 0;
 		}
 		
+		int classBit = (cl == null) ? 0 : classBit(cl);
+		if(!holds(categories, classBit))
+			return 0;
+		
+		// counting everything, and everything below us is inside; a
+		// polyline along our left or top edge only is if rect goes past it
+		if(objects == null && categories == ISpatialObject.CATEGORY_ALL && cl == null
+				&& rect.contains(this.loose) && rect.x < this.bounds.x && rect.y < this.bounds.y)
+			return this.count;
+		
 		//XXX PROFILE!! (40us/call)
 		
-		if(this.children == null) {
+		ISpatialObject[] members = this.leafMembers;
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
 			int cnt = 0;
-			synchronized(this.leafMembers) {
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject o = (ISpatialObject)this.leafMembers.get(ii);
-					if(o.containedPartiallyBy(rect)) {
-						if(objects != null)
-							objects.add(o);
-						cnt++;
-					}
+			members = settled(members);
+			for(int ii = 0; ii < members.length; ii++) {
+				ISpatialObject o = members[ii];
+				if(matches(o, categories, cl) && o.containedPartiallyBy(rect)) {
+					if(objects != null)
+						objects.add(o);
+					cnt++;
 				}
 			}
 			
 			return cnt;
 		} else {
 			int cnt = 0;
-			synchronized(this.children) {
-				for(int ii = 0; ii < this.children.length; ii++) {
-					cnt += this.children[ii].objectsInside(objects, rect);
-				}
+			for(int ii = 0; ii < nodes.length; ii++) {
+				cnt += nodes[ii].objectsInside(objects, rect, categories, cl);
 			}
 			
 			return cnt;
 		}
 	}
 	
-	public int objectsInsideLike(List objects, Rectangle rect, Class cl) {
-		if(!this.bounds.contains(rect) && !this.bounds.intersects(rect)) {
+	/**
+	 * Predictive objectsInside, see QuadTree.objectsInside(List,
+	 * Rectangle, double, double). Everything below us lies in our loose
+	 * rectangle at now, and can have drifted by our speeds since, but
+	 * no further than the edge of the tree, where moving points stop.
+	 * @param now Kinetic clock the query started at
+	 */
+	int objectsInside(List objects, Rectangle rect, double now, double t0, double t1) {
+		double dx = this.speedX * (t1 - now), dy = this.speedY * (t1 - now);
+		Rectangle l = this.loose, tb = this.tree.getBounds();
+		double x0 = Math.max(l.x - dx, tb.x), x1 = Math.min(l.x + l.width + dx, tb.x + tb.width);
+		double y0 = Math.max(l.y - dy, tb.y), y1 = Math.min(l.y + l.height + dy, tb.y + tb.height);
+		if(x0 >= rect.x + rect.width || rect.x >= x1 || y0 >= rect.y + rect.height || rect.y >= y1)
 			return 0;
-		}
-		
-		//XXX PROFILE!! (40us/call)
 		
-		if(this.children == null) {
+		ISpatialObject[] members = this.leafMembers;
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
 			int cnt = 0;
-			synchronized(this.leafMembers) {
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject o = (ISpatialObject)this.leafMembers.get(ii);
-					if((o.getClass() == cl) && o.containedPartiallyBy(rect)) {
-						if(objects != null)
-							objects.add(o);
-						cnt++;
-					}
+			members = settled(members);
+			for(int ii = 0; ii < members.length; ii++) {
+				ISpatialObject o = members[ii];
+				boolean inside = (o instanceof KineticPoint)
+					? ((KineticPoint)o).passesThrough(rect, t0, t1)
+					: o.containedPartiallyBy(rect);
+				if(inside) {
+					if(objects != null)
+						objects.add(o);
+					cnt++;
 				}
 			}
 			
 			return cnt;
 		} else {
 			int cnt = 0;
-			synchronized(this.children) {
-				for(int ii = 0; ii < this.children.length; ii++) {
-					cnt += this.children[ii].objectsInsideLike(objects, rect, cl);
-				}
+			for(int ii = 0; ii < nodes.length; ii++) {
+				cnt += nodes[ii].objectsInside(objects, rect, now, t0, t1);
 			}
 			
 			return cnt;
 		}
 	}
-
+	
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle rect) {
+		return visitInside(visitor, rect, ISpatialObject.CATEGORY_ALL, null);
+	}
+	
+	/**
+	 * @param cl Class filter, or null to visit every class
+	 */
+	public boolean visitInsideLike(ISpatialVisitor visitor, Rectangle rect, Class cl) {
+		return visitInside(visitor, rect, ISpatialObject.CATEGORY_ALL, cl);
+	}
+	
+	/**
+	 * @param categories Category mask, CATEGORY_ALL for any
+	 * @param cl Class filter, or null to visit every class
+	 */
+	public boolean visitInside(ISpatialVisitor visitor, Rectangle rect, int categories, Class cl) {
+		if(!this.loose.contains(rect) && !this.loose.intersects(rect)) {
+			return true;
+		}
+		
+		if(!holds(categories, (cl == null) ? 0 : classBit(cl)))
+			return true;
+		
+		ISpatialObject[] members = this.leafMembers;
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
+			members = settled(members);
+			for(int ii = 0; ii < members.length; ii++) {
+				ISpatialObject o = members[ii];
+				if(matches(o, categories, cl) && o.containedPartiallyBy(rect)) {
+					if(!visitor.visit(o))
+						return false;
+				}
+			}
+		} else {
+			for(int ii = 0; ii < nodes.length; ii++) {
+				if(!nodes[ii].visitInside(visitor, rect, categories, cl))
+					return false;
+			}
+		}
+		
+		return true;
+	}
 
 	public boolean remove(ISpatialObject o) {
+		synchronized(this.tree.writeLock()) {
+			return removeLocked(o);
+		}
+	}
+	
+	private boolean removeLocked(ISpatialObject o) {
 		if(this.children == null) {
-			if(this.leafMembers.remove(o)) {
+			int index = indexOf(this.leafMembers, o);
+			if(index >= 0) {
+				this.leafMembers = removeAt(this.leafMembers, index);
+				adjust(-1);
+				narrow();
+				dropSegments(o);
 				o.deleteParent(this);
 				return true;
 			} else {
@@ -317,188 +864,508 @@ public class QuadTreeNode extends AbstractSpatialSet {
 			}
 		}
 		
-		synchronized(this.children) {
-			boolean contains = false;
-			int sz = this.children.length;
-			for(int ii = 0; ii < sz; ii++) {
-				contains |= this.children[ii].contains(o);
-				if(contains) {
-					this.children[ii].remove(o);
-					if(o.pointCount() == 1) {
-						// shortcut for single point data
-						o.deleteParent(this);
-						return true;
-					}
+		boolean contains = false;
+		int sz = this.children.length;
+		for(int ii = 0; ii < sz; ii++) {
+			contains |= this.children[ii].contains(o);
+			if(contains) {
+				this.children[ii].removeLocked(o);
+				if(o.pointCount() == 1) {
+					// shortcut for single point data
+					o.deleteParent(this);
+					return true;
 				}
 			}
-			
-			if(contains)
-				o.deleteParent(this);
-			
-			return contains;
 		}
+		
+		if(contains)
+			o.deleteParent(this);
+		
+		return contains;
 	}
 
-	public synchronized void clear() {
-		if(this.children == null) {
-			this.leafMembers.clear();
-		} else {
-			for(int ii = 0; ii < this.children.length; ii++)
-				this.children[ii].clear();
+	public void clear() {
+		synchronized(this.tree.writeLock()) {
+			QuadTreeNode[] nodes = this.children;
+			if(nodes == null) {
+				adjust(-this.leafMembers.length);
+				this.leafMembers = NO_MEMBERS;
+				this.leafSegments = NO_SEGMENTS;
+				narrow();
+			} else {
+				for(int ii = 0; ii < nodes.length; ii++)
+					nodes[ii].clear();
+			}
 		}
 	}
 
 	/**
-	 * 
+	 * Kinetic notification from one of our members. If the tree is
+	 * deferring updates the move is queued for QuadTree.commitMoves,
+	 * otherwise the object is relocated immediately. Polylines only
+	 * notify one of their leaves, see getOwner.
 	 */
-	public synchronized void update(Observable o, Object arg) {
-		ISpatialObject obj = (ISpatialObject)o;
+	public void objectMoved(ISpatialObject obj) {
+		if(this.tree.isDeferredUpdates()) {
+			// a point still in our loose bounds has nothing to commit,
+			// unless it is a KineticPoint which may need a new certificate
+			if(!(obj instanceof KineticPoint) && keeps(obj))
+				return;
+			this.tree.deferMove(obj);
+			
+			// deferral was turned off after we looked, and its commit
+			// may have missed us
+			if(!this.tree.isDeferredUpdates())
+				this.tree.commitMoves();
+			return;
+		}
 
 		//XXX PROFILE! (60us/call)
 		//XXX now 20us/call!!
+		synchronized(this.tree.writeLock()) {
+			QuadTreeNode dirty = relocate(obj);
+			if(dirty != null)
+				dirty.balance();
+		}
+	}
+	
+	/**
+	 * Move an object which has left our bounds to the node which now
+	 * bounds it. Does not balance, the caller is handed the node which
+	 * needs balancing instead so batched updates can balance it once.
+	 * The caller must hold the tree's write lock.
+	 * @param obj Object which notified us of a move
+	 * @return Node to balance afterwards, or null if none
+	 */
+	QuadTreeNode relocate(ISpatialObject obj) {
 		if(obj.pointCount() == 1) {
-			// check if the node moved outside our bounds
-			if(!obj.containedPartiallyBy(this.bounds)) {
-				this.remove(obj);
-				
+			// check if the node moved outside our bounds, or we split
+			// without it while updates were deferred
+			if(!keeps(obj)) {
 				// walk up the tree until we find a node which
 				// encompasses this node
-				QuadTreeNode node = this.parent;
-				while(node != null) {
-					if(obj.containedPartiallyBy(node.bounds)) {
-						node.add(obj);
-						this.parent.balance();
-						return;
-					}
-					
-					node = node.parent;
-				}
+				QuadTreeNode node = bounding((this.children != null) ? this : this.parent, obj);
 				
 				// this is an error, node moved outside the quadtree bounds!!
-				throw new IllegalStateException("ISpatialObject moved outside the bounds of the QuadTree!");
-			}
-		} else {
-			QuadTreeNode node = this;
-			while(!obj.containedFullyBy(node.bounds)) {
-				node = node.parent;
-				if(node == null) {
-					tree.remove(obj);
-					return;
-//					throw new IllegalStateException("ISpatialObject not fully contained by anyone!");
-				}
+				if(node == null)
+					throw new IllegalStateException("ISpatialObject moved outside the bounds of the QuadTree!");
+				
+				// add before removing so concurrent readers
+				// never miss the object
+				node.addLocked(obj);
+				this.removeMember(obj);
+				this.tree.countMigration();
+				return (node == this) ? null : this.parent;
 			}
 			
-			node.add(obj);
+			// still ours, but a moving point may have a new leg
+			this.tree.certify(obj);
+		} else {
+			relocateLine(obj);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Is a point one of our leaf members which needn't move? Not once we
+	 * have split without it while updates were deferred.
+	 */
+	boolean keeps(ISpatialObject obj) {
+		return obj.pointCount() == 1 && this.children == null && obj.containedPartiallyBy(this.loose);
+	}
+	
+	/**
+	 * r.intersects(new Rectangle(x0, y0, x1 - x0, y1 - y0)), which for
+	 * object bounds also covers r.contains, without the Rectangle. Empty
+	 * bounds meet nothing.
+	 */
+	static boolean meets(Rectangle r, int x0, int y0, int x1, int y1) {
+		return x1 > x0 && y1 > y0 && r.width > 0 && r.height > 0
+			&& x0 < r.x + r.width && r.x < x1 && y0 < r.y + r.height && r.y < y1;
+	}
+	
+	/**
+	 * r.contains(new Rectangle(x0, y0, x1 - x0, y1 - y0)) for non-empty
+	 * bounds, without the Rectangle. Empty bounds are never enclosed.
+	 */
+	static boolean encloses(Rectangle r, int x0, int y0, int x1, int y1) {
+		return x1 > x0 && y1 > y0 && r.x <= x0 && r.y <= y0
+			&& x1 <= r.x + r.width && y1 <= r.y + r.height;
+	}
+	
+	/**
+	 * Does an object belong in a cell? Cells own their left and top
+	 * edges, as they do the points on them. containedPartiallyBy only
+	 * sees polylines passing through a cell's inside, so one lying along
+	 * the edge between two cells would be in neither, and a moving one
+	 * would drop out of the tree the first time it landed on an edge.
+	 */
+	static boolean reaches(Rectangle cell, ISpatialObject obj) {
+		if(obj.containedPartiallyBy(cell))
+			return true;
+		return (obj instanceof AbstractPolyline) && ((AbstractPolyline)obj).alongEdges(cell);
+	}
+	
+	/**
+	 * Does a cell own every point of an object's bounds? Unlike
+	 * containedFullyBy, bounds reaching the right or bottom edge aren't.
+	 */
+	private static boolean owns(Rectangle cell, ISpatialObject obj) {
+		return cell.x <= obj.getMinX() && cell.y <= obj.getMinY()
+			&& obj.getMaxX() < cell.x + cell.width && obj.getMaxY() < cell.y + cell.height;
+	}
+	
+	/**
+	 * Walk up the tree for the first node whose cell bounds an object.
+	 * @param node Node to start from (may be null)
+	 * @return The node, or null if the object is outside the tree
+	 */
+	private static QuadTreeNode bounding(QuadTreeNode node, ISpatialObject obj) {
+		while(node != null && !obj.containedPartiallyBy(node.bounds))
+			node = node.parent;
+		return node;
+	}
+	
+	/**
+	 * Bring the leaves of a multi-point object up to date after it moved.
+	 * The leaves it is registered with are the parents it carries, which
+	 * are marked held; the leaves it covers now are found below the
+	 * nearest node which bounds all of it (the root if nothing does), and
+	 * marked kept if they were held. It is added to the leaves it entered
+	 * before it is removed from the held leaves it left, and kept leaves
+	 * are left alone, apart from refreshing their segment runs. An object
+	 * which left the tree completely ends up in no leaves at all. The
+	 * leaves are gathered in the tree's scratch arrays, so a move
+	 * allocates nothing here. The caller must hold the tree's write lock.
+	 * @param obj Object which moved, notifying us or any other node
+	 */
+	void relocateLine(ISpatialObject obj) {
+		int held = 0;
+		if(obj instanceof AbstractPolyline) {
+			AbstractPolyline line = (AbstractPolyline)obj;
+			for(int ii = 0; ii < line.parentCount(); ii++)
+				held = hold(line.parentAt(ii), held);
+		} else if(obj.getParents() != null) {
+			Object[] parents = obj.getParents().toArray();
+			for(int ii = 0; ii < parents.length; ii++)
+				held = hold(parents[ii], held);
+		}
+		
+		// removed from this tree while the move was queued
+		if(held == 0)
+			return;
+		
+		// cells don't own their right and bottom edges, so a line
+		// reaching ours may lie along a cell beyond them
+		QuadTreeNode top = this;
+		while(top.parent != null && !owns(top.bounds, obj))
+			top = top.parent;
+		
+		int covered = top.coverage(obj, 0);
+		
+		QuadTreeNode[] after = this.tree.coveredLeaves;
+		boolean segments = this.tree.isSegmentIndexing();
+		for(int ii = 0; ii < covered; ii++) {
+			QuadTreeNode leaf = after[ii];
+			after[ii] = null;
+			if(leaf.lineMark != KEPT || segments)
+				leaf.addLocked(obj);
+		}
+		
+		QuadTreeNode[] before = this.tree.heldLeaves;
+		for(int ii = 0; ii < held; ii++) {
+			QuadTreeNode leaf = before[ii];
+			before[ii] = null;
+			if(leaf.lineMark == HELD)
+				leaf.removeMember(obj);
+			leaf.lineMark = 0;
+		}
+	}
+	
+	/**
+	 * Mark one of a moving line's parents held, if it is a leaf of ours.
+	 * @param parent Parent of the line
+	 * @param held Leaves held so far
+	 * @return Leaves held, including this one
+	 */
+	private int hold(Object parent, int held) {
+		if(!(parent instanceof QuadTreeNode) || ((QuadTreeNode)parent).tree != this.tree)
+			return held;
+		
+		QuadTreeNode leaf = (QuadTreeNode)parent;
+		QuadTreeNode[] before = this.tree.heldLeaves;
+		if(held == before.length)
+			this.tree.heldLeaves = before = Arrays.copyOf(before, held * 2);
+		before[held] = leaf;
+		leaf.lineMark = HELD;
+		return held + 1;
+	}
+	
+	/**
+	 * Collect the leaves below us an object partially covers into the
+	 * tree's coveredLeaves, marking held ones kept.
+	 * @param n Leaves collected so far
+	 * @return Leaves collected, including ours
+	 */
+	private int coverage(ISpatialObject obj, int n) {
+		if(!reaches(this.bounds, obj))
+			return n;
+		
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
+			if(this.lineMark == HELD)
+				this.lineMark = KEPT;
 			
-			// are we no longer part of the node?
-			if(!obj.containedPartiallyBy(this.bounds)) {
-				this.remove(obj);
-			}
+			QuadTreeNode[] leaves = this.tree.coveredLeaves;
+			if(n == leaves.length)
+				this.tree.coveredLeaves = leaves = Arrays.copyOf(leaves, n * 2);
+			leaves[n++] = this;
+		} else {
+			for(int ii = 0; ii < nodes.length; ii++)
+				n = nodes[ii].coverage(obj, n);
 		}
+		return n;
 	}
 	
 	/**
-	 * 
-	 *
-	 */
-	public synchronized void balance( ) {
-		if(this.children != null) {
-			int sz = this.size();
-			if(sz < this.splitAfter) {				
-				// reclaim children
-				List objects = new ArrayList(sz);
-				for(int ii = 0; ii < this.children.length; ii++) {
-					this.children[ii].toList(objects);
+	 * Drop a member which has already been added elsewhere. Unlike
+	 * remove this leaves the object's parent alone unless it is still us.
+	 */
+	private void removeMember(ISpatialObject obj) {
+		int index = indexOf(this.leafMembers, obj);
+		if(index >= 0) {
+			this.leafMembers = removeAt(this.leafMembers, index);
+			adjust(-1);
+			narrow();
+		}
+		dropSegments(obj);
+		obj.deleteParent(this);
+	}
+	
+	/**
+	 * Distance from the root, which is depth 0.
+	 * @return Depth of this node
+	 */
+	int depth( ) {
+		return this.depth;
+	}
+	
+	/**
+	 * Collapse our children back into a leaf once the subtree is below
+	 * the tree's merge size, and has been for the tree's collapse delay.
+	 */
+	public void balance( ) {
+		synchronized(this.tree.writeLock()) {
+			if(this.children != null) {
+				int sz = this.size();
+				if(sz >= this.tree.getMergeSize()) {
+					this.underfull = 0;
+				} else if(++this.underfull > this.tree.getCollapseDelay()) {
+					this.underfull = 0;
+					this.tree.countMerge();
+					
+					// reclaim children, polylines in several leaves once
+					QuadTreeNode[] nodes = this.children;
+					ISpatialObject[] members = new ISpatialObject[sz];
+					int n = 0;
+					for(int ii = 0; ii < nodes.length; ii++) {
+						n = nodes[ii].reclaimInto(this, members, n);
+					}
+					if(n < sz) {
+						ISpatialObject[] exact = new ISpatialObject[n];
+						System.arraycopy(members, 0, exact, 0, n);
+						members = exact;
+					}
+					
+					// publish the members before dropping the children
+					if(this.tree.isSegmentIndexing())
+						members = indexSegments(members);
+					this.leafMembers = members;
+					this.children = null;
+					if(this.tree.isNodePooling())
+						release(nodes);
+					
+					// polylines held by several children count once now
+					adjust(members.length - sz);
+					narrow();
 				}
-				
-				this.leafMembers = objects;
-				this.children = null;
-				
-				sz = objects.size();
-				for(int ii = 0; ii < sz; ii++) {
-					((ISpatialObject)objects.get(ii)).addParent(this);
+			}
+		}
+	}
+	
+	/**
+	 * Gather every object below us for a collapsing ancestor, once
+	 * each (polylines sit in several leaves), moving their parent
+	 * link from our leaves to the ancestor.
+	 * @param objects Array to gather into, large enough for our count
+	 * @param n Objects gathered so far
+	 * @return Objects gathered, including ours
+	 */
+	private int reclaimInto(QuadTreeNode target, ISpatialObject[] objects, int n) {
+		QuadTreeNode[] nodes = this.children;
+		if(nodes == null) {
+			ISpatialObject[] members = this.leafMembers;
+			for(int ii = 0; ii < members.length; ii++) {
+				ISpatialObject o = members[ii];
+				o.deleteParent(this);
+				if(!o.hasParent(target)) {
+					o.addParent(target);
+					objects[n++] = o;
 				}
 			}
+		} else {
+			for(int ii = 0; ii < nodes.length; ii++)
+				n = nodes[ii].reclaimInto(target, objects, n);
 		}
+		return n;
 	}
 	
 	public void paint(Graphics g, Rectangle viewport, boolean drawNodes) {
-		if(viewport.contains(this.bounds) || viewport.intersects(this.bounds)) {
-			if(this.children == null) {
+		if(viewport.contains(this.loose) || viewport.intersects(this.loose)) {
+			ISpatialObject[] members = this.leafMembers;
+			QuadTreeNode[] nodes = this.children;
+			if(nodes == null) {
 				if(drawNodes) {
 					g.setColor(Color.red);
 					g.drawRect(this.bounds.x, this.bounds.y, this.bounds.width, this.bounds.height);
+					if(this.c == null)
+						this.c = new Color((int)(Math.random()*255), (int)(Math.random()*255), (int)(Math.random()*255));
 					g.setColor(this.c);
 				}
 				
 				// don't use iterator, slows us down
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					Object obj = this.leafMembers.get(ii);
+				members = settled(members);
+				for(int ii = 0; ii < members.length; ii++) {
+					Object obj = members[ii];
 					if(obj instanceof IPaintable)
 						((IPaintable)obj).paint(g, this.bounds, drawNodes);
 				}
 			} else {
-				this.children[QuadTree.QUADTREENODE_NW].paint(g, viewport, drawNodes);
-				this.children[QuadTree.QUADTREENODE_SW].paint(g, viewport, drawNodes);
-				this.children[QuadTree.QUADTREENODE_NE].paint(g, viewport, drawNodes);
-				this.children[QuadTree.QUADTREENODE_SE].paint(g, viewport, drawNodes);
+				nodes[QuadTree.QUADTREENODE_NW].paint(g, viewport, drawNodes);
+				nodes[QuadTree.QUADTREENODE_SW].paint(g, viewport, drawNodes);
+				nodes[QuadTree.QUADTREENODE_NE].paint(g, viewport, drawNodes);
+				nodes[QuadTree.QUADTREENODE_SE].paint(g, viewport, drawNodes);
 			}
 		}
 	}
 
 	// collision detection
 	public boolean geometryIntersects(Point p) {
-		if(this.bounds.contains(p)) {
-			if(this.children == null) {
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject obj = (ISpatialObject)this.leafMembers.get(ii);
+		return geometryIntersects(p, ISpatialObject.CATEGORY_SOLID);
+	}
+	
+	/**
+	 * @param categories Only objects sharing a category with this mask
+	 */
+	public boolean geometryIntersects(Point p, int categories) {
+		return intersecting(p, categories, null) != null;
+	}
+	
+	/**
+	 * The member a point hits, as geometryIntersects(Point, int) finds it.
+	 * @param skip Member to ignore (may be null)
+	 * @return The first member hit, or null
+	 */
+	ISpatialObject intersecting(Point p, int categories, ISpatialObject skip) {
+		if(this.loose.contains(p) && (this.categories & categories) != 0) {
+			ISpatialObject[] members = this.leafMembers;
+			QuadTreeNode[] nodes = this.children;
+			if(nodes == null) {
+				// polylines are kept by cell, the leaf whose cell holds
+				// the point has any which could hit it
+				boolean cell = (this.loose == this.bounds) || this.bounds.contains(p);
+				members = settled(members);
+				Segments[] segments = this.leafSegments;
+				for(int ii = 0; ii < members.length; ii++) {
+					ISpatialObject obj = members[ii];
 					
-					if(obj instanceof INoClipping)
+					if(obj == skip || (obj.getCategories() & categories) == 0)
 						continue;
 					
-					if(obj.intersects(p)) {
-						return true;
+					if(!cell && obj.pointCount() != 1)
+						continue;
+					
+					int[] runs = runsOf(segments, obj);
+					if(runs != null) {
+						if(((AbstractPolyline)obj).intersects(p.x, p.y, 1, 1, runs))
+							return obj;
+					} else if(obj.intersects(p)) {
+						return obj;
 					}
 				}
+			} else if(this.tree.isLoose()) {
+				// loose children overlap, any of them may hold it
+				for(int ii = 0; ii < nodes.length; ii++) {
+					ISpatialObject hit = nodes[ii].intersecting(p, categories, skip);
+					if(hit != null)
+						return hit;
+				}
 			} else {
 				if(p.x < this.bounds.x + this.bounds.width/2) {
 					if(p.y < this.bounds.y + this.bounds.height/2) {
-						return this.children[QuadTree.QUADTREENODE_NW].geometryIntersects(p);
+						return nodes[QuadTree.QUADTREENODE_NW].intersecting(p, categories, skip);
 					} else {
-						return this.children[QuadTree.QUADTREENODE_SW].geometryIntersects(p);
+						return nodes[QuadTree.QUADTREENODE_SW].intersecting(p, categories, skip);
 					}
 				} else {
 					if(p.y < this.bounds.y + this.bounds.height/2) {
-						return this.children[QuadTree.QUADTREENODE_NE].geometryIntersects(p);
+						return nodes[QuadTree.QUADTREENODE_NE].intersecting(p, categories, skip);
 					} else {
-						return this.children[QuadTree.QUADTREENODE_SE].geometryIntersects(p);
+						return nodes[QuadTree.QUADTREENODE_SE].intersecting(p, categories, skip);
 					}				
 				}
 			}
 		}
 		
-		return false;
+		return null;
+	}
+	
+	/**
+	 * The node a point query can start from instead of the root: the
+	 * nearest one up from us whose cell holds the point, as every query
+	 * for it passes through there. Loose trees go back to the root, the
+	 * margins of any neighbour may reach the point.
+	 */
+	QuadTreeNode around(Point p) {
+		QuadTreeNode node = this;
+		boolean loose = this.tree.isLoose();
+		while(node.parent != null && (loose || !node.bounds.contains(p)))
+			node = node.parent;
+		return node;
 	}
 	
 	public boolean geometryIntersects(Rectangle r) {
-		if(this.bounds.contains(r) || this.bounds.intersects(r)) {
-			if(this.children == null) {
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject obj = (ISpatialObject)this.leafMembers.get(ii);
+		return geometryIntersects(r, ISpatialObject.CATEGORY_SOLID);
+	}
+	
+	/**
+	 * @param categories Only objects sharing a category with this mask
+	 */
+	public boolean geometryIntersects(Rectangle r, int categories) {
+		if((this.loose.contains(r) || this.loose.intersects(r)) && (this.categories & categories) != 0) {
+			ISpatialObject[] members = this.leafMembers;
+			QuadTreeNode[] nodes = this.children;
+			if(nodes == null) {
+				members = settled(members);
+				Segments[] segments = this.leafSegments;
+				for(int ii = 0; ii < members.length; ii++) {
+					ISpatialObject obj = members[ii];
 					
-					if(obj instanceof INoClipping)
+					if((obj.getCategories() & categories) == 0)
 						continue;
 					
-					if(obj.intersects(r)) {
+					int[] runs = runsOf(segments, obj);
+					if(runs != null) {
+						if(((AbstractPolyline)obj).intersects(r, runs))
+							return true;
+					} else if(obj.intersects(r)) {
 						return true;
 					}
 				}
 			} else {
-				for(int ii = 0; ii < this.children.length; ii++) {
-					if(this.children[ii].geometryIntersects(r))
+				for(int ii = 0; ii < nodes.length; ii++) {
+					if(nodes[ii].geometryIntersects(r, categories))
 						return true;
 				}
 			}
@@ -509,24 +1376,55 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	
 	// collision detection
 	public boolean geometryIntersects(ISpatialObject obj) {
-		Rectangle objBounds = obj.getBounds();
-		if(this.bounds.contains(objBounds) || this.bounds.intersects(objBounds)) {
-			if(this.children == null) {
-				int points = obj.pointCount();
-				int sz = this.leafMembers.size();
-				for(int ii = 0; ii < sz; ii++) {
-					ISpatialObject oo = (ISpatialObject)this.leafMembers.get(ii);
+		return geometryIntersects(obj, ISpatialObject.CATEGORY_SOLID);
+	}
+	
+	/**
+	 * @param categories Only objects sharing a category with this mask
+	 */
+	public boolean geometryIntersects(ISpatialObject obj, int categories) {
+		int x0 = obj.getMinX(), y0 = obj.getMinY(), x1 = obj.getMaxX(), y1 = obj.getMaxY();
+		if(!meets(this.loose, x0, y0, x1, y1))
+			return false;
+		
+		// a point's bounds are empty and never get this far, so this
+		// Rectangle is only built for one point objects with an extent
+		Rectangle area = (obj.pointCount() == 1) ? new Rectangle(x0, y0, x1 - x0, y1 - y0) : null;
+		return geometryIntersects(obj, x0, y0, x1, y1, area, categories);
+	}
+	
+	/**
+	 * geometryIntersects below the first node, with the object's bounds
+	 * fetched once for the leaves to test against.
+	 * @param area The bounds as a Rectangle for a one point object,
+	 * 	which members without segments test against, otherwise null
+	 */
+	private boolean geometryIntersects(ISpatialObject obj,
+			int x0, int y0, int x1, int y1, Rectangle area, int categories) {
+		if(meets(this.loose, x0, y0, x1, y1) && (this.categories & categories) != 0) {
+			ISpatialObject[] members = this.leafMembers;
+			QuadTreeNode[] nodes = this.children;
+			if(nodes == null) {
+				members = settled(members);
+				Segments[] segments = this.leafSegments;
+				for(int ii = 0; ii < members.length; ii++) {
+					ISpatialObject oo = members[ii];
 					
 					// can't intersect ourself
 					if(oo == obj)
 						continue;
 					
-					if(oo instanceof INoClipping)
+					if((oo.getCategories() & categories) == 0)
 						continue;
 					
-					// work with the single point when possible
-					if(points == 1) {
-						if(oo.intersects(objBounds)) {
+					// only the segments crossing this leaf
+					int[] runs = runsOf(segments, oo);
+					if(runs != null) {
+						if(((AbstractPolyline)oo).intersects(x0, y0, x1 - x0, y1 - y0, runs))
+							return true;
+					} else if(area != null) {
+						// work with the single point when possible
+						if(oo.intersects(area)) {
 							return true;
 						}
 					} else {
@@ -537,10 +1435,10 @@ public class QuadTreeNode extends AbstractSpatialSet {
 				}
 			} else {
 				return
-					this.children[QuadTree.QUADTREENODE_NW].geometryIntersects(obj) ||
-					this.children[QuadTree.QUADTREENODE_NE].geometryIntersects(obj) ||
-					this.children[QuadTree.QUADTREENODE_SE].geometryIntersects(obj) ||
-					this.children[QuadTree.QUADTREENODE_SW].geometryIntersects(obj) ;
+					nodes[QuadTree.QUADTREENODE_NW].geometryIntersects(obj, x0, y0, x1, y1, area, categories) ||
+					nodes[QuadTree.QUADTREENODE_NE].geometryIntersects(obj, x0, y0, x1, y1, area, categories) ||
+					nodes[QuadTree.QUADTREENODE_SE].geometryIntersects(obj, x0, y0, x1, y1, area, categories) ||
+					nodes[QuadTree.QUADTREENODE_SW].geometryIntersects(obj, x0, y0, x1, y1, area, categories) ;
 			}
 		}
 		
@@ -550,4 +1448,146 @@ public class QuadTreeNode extends AbstractSpatialSet {
 	public Rectangle getBounds() {
 		return this.bounds;
 	}
+	
+	/**
+	 * @return The rectangle our members lie in, our cell unless the
+	 * 	tree is loose
+	 */
+	Rectangle getLooseBounds( ) {
+		return this.loose;
+	}
+	
+	/**
+	 * @return The tree, every node of a tree handles moves for all of them
+	 */
+	public Object getOwner( ) {
+		return this.tree;
+	}
+	
+	private boolean indexesSegments(ISpatialObject obj) {
+		return (obj instanceof AbstractPolyline) && this.tree.isSegmentIndexing();
+	}
+	
+	private int[] crossing(ISpatialObject obj) {
+		return ((AbstractPolyline)obj).segmentsCrossing(this.bounds);
+	}
+	
+	private void putSegments(ISpatialObject obj, int[] runs) {
+		Segments entry = new Segments((AbstractPolyline)obj, runs);
+		Segments[] segments = this.leafSegments;
+		for(int ii = 0; ii < segments.length; ii++) {
+			if(segments[ii].line == obj) {
+				// a line which moved within us often crosses with the same runs
+				if(Arrays.equals(segments[ii].runs, runs))
+					return;
+				Segments[] copy = segments.clone();
+				copy[ii] = entry;
+				this.leafSegments = copy;
+				return;
+			}
+		}
+		
+		Segments[] grown = new Segments[segments.length + 1];
+		System.arraycopy(segments, 0, grown, 0, segments.length);
+		grown[segments.length] = entry;
+		this.leafSegments = grown;
+	}
+	
+	private void dropSegments(ISpatialObject obj) {
+		Segments[] segments = this.leafSegments;
+		for(int ii = 0; ii < segments.length; ii++) {
+			if(segments[ii].line == obj) {
+				if(segments.length == 1) {
+					this.leafSegments = NO_SEGMENTS;
+				} else {
+					Segments[] shrunk = new Segments[segments.length - 1];
+					System.arraycopy(segments, 0, shrunk, 0, ii);
+					System.arraycopy(segments, ii + 1, shrunk, ii, segments.length - ii - 1);
+					this.leafSegments = shrunk;
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @return The segment runs of a leaf member crossing the leaf, or
+	 * 	null when the whole member is to be tested
+	 */
+	int[] getRuns(ISpatialObject obj) {
+		return runsOf(this.leafSegments, obj);
+	}
+	
+	/**
+	 * @return The runs stored for a member, or null to test it whole
+	 */
+	private static int[] runsOf(Segments[] segments, ISpatialObject obj) {
+		for(int ii = 0; ii < segments.length; ii++) {
+			if(segments[ii].line == obj)
+				return segments[ii].runs;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The node above us, null for the root
+	 */
+	QuadTreeNode getParentNode( ) {
+		return this.parent;
+	}
+	
+	/**
+	 * @param quadrant One of the QuadTree.QUADTREENODE_ constants
+	 * @return The child in that quadrant, or null for a leaf
+	 */
+	QuadTreeNode getChild(int quadrant) {
+		QuadTreeNode[] nodes = this.children;
+		return (nodes == null) ? null : nodes[quadrant];
+	}
+	
+	/**
+	 * @return The current member array of a leaf, never modified
+	 * 	once published, or null once the node has children
+	 */
+	ISpatialObject[] getLeafMembers() {
+		ISpatialObject[] members = this.leafMembers;
+		return (this.children == null) ? settled(members) : null;
+	}
+	
+	/**
+	 * Members for a reader which read them, then found no children.
+	 * Inner nodes hold no members, and a split publishes its children
+	 * before emptying the old leaf, so anything read is this leaf's.
+	 * An empty array may have come from an inner node which collapsed
+	 * since; a collapse publishes the gathered members before dropping
+	 * the children, so reading again finds them.
+	 */
+	private ISpatialObject[] settled(ISpatialObject[] seen) {
+		return (seen.length == 0) ? this.leafMembers : seen;
+	}
+	
+	private static int indexOf(ISpatialObject[] members, ISpatialObject o) {
+		for(int ii = 0; ii < members.length; ii++) {
+			if(members[ii] == o)
+				return ii;
+		}
+		return -1;
+	}
+	
+	private static ISpatialObject[] append(ISpatialObject[] members, ISpatialObject o) {
+		ISpatialObject[] grown = new ISpatialObject[members.length + 1];
+		System.arraycopy(members, 0, grown, 0, members.length);
+		grown[members.length] = o;
+		return grown;
+	}
+	
+	private static ISpatialObject[] removeAt(ISpatialObject[] members, int index) {
+		if(members.length == 1)
+			return NO_MEMBERS;
+		
+		ISpatialObject[] shrunk = new ISpatialObject[members.length - 1];
+		System.arraycopy(members, 0, shrunk, 0, index);
+		System.arraycopy(members, index + 1, shrunk, index, members.length - index - 1);
+		return shrunk;
+	}
 }
\ No newline at end of file